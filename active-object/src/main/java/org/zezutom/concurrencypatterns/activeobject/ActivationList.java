@@ -0,0 +1,54 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+import java.util.Collection;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Activation List: a queue of pending client requests. Any number of clients can put their requests in,
+ * but only a single thread - the scheduler - takes them out.
+ *
+ * @param <E> the type of the requests
+ */
+public interface ActivationList<E> {
+
+    /**
+     * Enqueues a request, waits for space to become available if necessary
+     * @param e the request
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void put(E e) throws InterruptedException;
+
+    /**
+     * Enqueues a request if there is space for it, never waits
+     * @param e the request
+     * @return true if the request was enqueued, false if the list is full
+     */
+    boolean offer(E e);
+
+    /**
+     * Dequeues the oldest request, waits for one to arrive if necessary
+     * @return the oldest request
+     * @throws InterruptedException if interrupted while waiting
+     */
+    E take() throws InterruptedException;
+
+    /**
+     * Dequeues all of the available requests, never waits
+     * @param batch the collection the requests are added to, in order
+     * @return the number of the dequeued requests
+     */
+    int drainTo(Collection<? super E> batch);
+
+    /**
+     * Dequeues the oldest request, never waits. Unless the implementation states otherwise,
+     * only the scheduler may call it.
+     * @return the oldest request, or null if there is none
+     */
+    E poll();
+
+    /**
+     * @return the number of the pending requests, possibly an estimate
+     */
+    int size();
+}
@@ -0,0 +1,19 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Determines what kind of a queue the scheduler uses as its activation list.
+ */
+public enum ActivationListType {
+
+    /**
+     * An unbounded linked queue, see org.zezutom.concurrencypatterns.activeobject.LinkedActivationList
+     */
+    LINKED,
+
+    /**
+     * A bounded, preallocated and lock-free queue, see org.zezutom.concurrencypatterns.activeobject.RingBuffer
+     */
+    RING_BUFFER
+}
@@ -0,0 +1,132 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Turns any single-threaded component into an active object. The servant (the component) is hidden
+ * behind a proxy implementing the given interface. Each call on the proxy becomes a message, which is
+ * put into the activation list and executed by the scheduler on the private thread:
+ *
+ *   Counter counter = ActiveObjects.create(Counter.class, new ThreadUnsafeCounter(0), SchedulerOptions.defaults());
+ *
+ * - Methods returning a value block the caller until the result is ready
+ * - Void methods are fire-and-forget, the caller returns as soon as the message is enqueued
+ * - Exceptions thrown by the servant are rethrown to the caller (void methods excepted)
+ * - Method dispatch is resolved once, when the proxy is created. Calls go through cached method handles,
+ *   there is no reflective lookup per call.
+ */
+public class ActiveObjects {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private ActiveObjects() {}
+
+    public static <T> T create(Class<T> iface, T servant, SchedulerOptions options) {
+        return create(iface, servant, new DedicatedScheduler(options));
+    }
+
+    public static <T> T create(Class<T> iface, T servant, Scheduler scheduler) {
+        if (iface == null || !iface.isInterface()) {
+            throw new IllegalArgumentException("An interface is required!");
+        }
+        if (servant == null) {
+            throw new IllegalArgumentException("The servant is required!");
+        }
+        Object proxy = Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[] {iface},
+                new ActiveObjectProxy(scheduler, dispatchTable(iface, servant)));
+        return iface.cast(proxy);
+    }
+
+    // Binds each of the interface methods to the servant
+    private static Map<Method, MethodHandle> dispatchTable(Class<?> iface, Object servant) {
+        Map<Method, MethodHandle> dispatchTable = new HashMap<>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Method method : iface.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            try {
+                method.setAccessible(true);
+                MethodHandle handle = lookup.unreflect(method)
+                        .asFixedArity()
+                        .bindTo(servant)
+                        .asSpreader(Object[].class, method.getParameterTypes().length)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+                dispatchTable.put(method, handle);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Method " + method + " can't be accessed!", e);
+            }
+        }
+        return dispatchTable;
+    }
+
+    // Proxy: turns method calls into messages
+    private static class ActiveObjectProxy implements InvocationHandler {
+
+        private final Scheduler scheduler;
+
+        private final Map<Method, MethodHandle> dispatchTable;
+
+        private ActiveObjectProxy(Scheduler scheduler, Map<Method, MethodHandle> dispatchTable) {
+            this.scheduler = scheduler;
+            this.dispatchTable = dispatchTable;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final MethodHandle handle = dispatchTable.get(method);
+            if (handle == null) {
+                // equals, hashCode and toString are answered by the proxy itself
+                return invokeOnProxy(proxy, method, args);
+            }
+
+            final Object[] arguments = (args == null) ? NO_ARGS : args;
+            FutureTask<Object> task = new FutureTask<>(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    try {
+                        return (Object) handle.invokeExact(arguments);
+                    } catch (Exception | Error e) {
+                        throw e;
+                    } catch (Throwable t) {
+                        throw new ExecutionException(t);
+                    }
+                }
+            });
+            scheduler.enqueue(task);
+
+            if (method.getReturnType() == void.class) {
+                return null;
+            }
+            try {
+                return task.get();
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            } catch (InterruptedException e) {
+                throw new RuntimeException("Task scheduling was interrupted!");
+            }
+        }
+
+        private Object invokeOnProxy(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "equals": return proxy == args[0];
+                case "hashCode": return System.identityHashCode(proxy);
+                case "toString": return "ActiveObject@" + Integer.toHexString(System.identityHashCode(proxy));
+                default: throw new UnsupportedOperationException(method.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+import java.util.concurrent.Future;
+
+/**
+ * @author Tomas Zezula
+ *
+ * A non-blocking companion of the org.zezutom.concurrencypatterns.activeobject.Counter.
+ * The calls return instantly, the results are delivered via futures. Clients which are not
+ * interested in the result at all should prefer the fire-and-forget increment and decrement.
+ */
+public interface AsyncCounter {
+
+    /**
+     * Gets the current value
+     * @return the current value, once available
+     */
+    Future<Long> get();
+
+    /**
+     * Atomically increments the value by one
+     * @return the incremented value, once available
+     */
+    Future<Long> incrementAndGet();
+
+    /**
+     * Atomically increments the value by one
+     * @return the current (non-incremented) value, once available
+     */
+    Future<Long> getAndIncrement();
+
+    /**
+     * Atomically decrements the value by one
+     * @return the decremented value, once available
+     */
+    Future<Long> decrementAndGet();
+
+    /**
+     * Atomically decrements the value by one
+     * @return the current (non-decremented) value, once available
+     */
+    Future<Long> getAndDecrement();
+
+    /**
+     * Atomically adds the given value to the current value
+     * @param delta the value to add
+     * @return the updated value, once available
+     */
+    Future<Long> addAndGet(long delta);
+
+    /**
+     * Atomically adds the given value to the current value
+     * @param delta the value to add
+     * @return the current (non-updated) value, once available
+     */
+    Future<Long> getAndAdd(long delta);
+
+    /**
+     * Atomically increments the value by one, no result is delivered
+     */
+    void increment();
+
+    /**
+     * Atomically decrements the value by one, no result is delivered
+     */
+    void decrement();
+
+    /**
+     * Atomically adds the given value to the current value, no result is delivered
+     * @param delta the value to add
+     */
+    void add(long delta);
+}
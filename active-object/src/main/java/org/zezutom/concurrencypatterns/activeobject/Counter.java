@@ -36,4 +36,40 @@ public interface Counter {
      * @return the current (non-decremented) value
      */
     long getAndDecrement();
+
+    /**
+     * Atomically adds the given value to the current value
+     * @param delta the value to add
+     * @return the updated value
+     */
+    long addAndGet(long delta);
+
+    /**
+     * Atomically adds the given value to the current value
+     * @param delta the value to add
+     * @return the current (non-updated) value
+     */
+    long getAndAdd(long delta);
+
+    /**
+     * Atomically sets the value to the given updated value if the current value equals to the expected value
+     * @param expect the expected value
+     * @param update the new value
+     * @return true if successful, false if the current value was not equal to the expected value
+     */
+    boolean compareAndSet(long expect, long update);
+
+    /**
+     * Atomically updates the current value with the results of applying the given function
+     * @param function calculates the new value from the current one
+     * @return the updated value
+     */
+    long updateAndGet(UpdateFunction function);
+
+    /**
+     * Atomically adds all of the given values, one after another, as a single operation
+     * @param deltas the values to add
+     * @return the intermediate results, i.e. the value after each of the additions
+     */
+    long[] applyBatch(long[] deltas);
 }
@@ -0,0 +1,187 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+import sun.misc.Unsafe;
+
+import java.io.Closeable;
+import java.lang.reflect.Field;
+
+/**
+ * @author Tomas Zezula
+ *
+ * A fixed number of counters kept in native memory, outside of the Java heap. Meant for per-key counters
+ * in the millions, where even a plain object per key is too much: the array is a single allocation
+ * and none of the operations creates any garbage.
+ *
+ * Each slot is updated atomically by a CAS, the reads are volatile. The operations mirror Counter,
+ * only each of them takes the index of the slot. See SlotLayout on how to keep the hot keys apart.
+ *
+ * The memory is not managed by the garbage collector, it is released by close(). Any access
+ * afterwards results in an IllegalStateException.
+ */
+public class CounterArray implements Closeable {
+
+    private static final Unsafe UNSAFE = loadUnsafe();
+
+    private static final int SLOT_SIZE = 8;
+
+    private static final int CACHE_LINE_SIZE = 64;
+
+    private static final int SLOTS_PER_LINE = CACHE_LINE_SIZE / SLOT_SIZE;
+
+    private final int length;
+
+    private final SlotLayout layout;
+
+    // The number of the cache lines the SPREAD layout deals the keys out over
+    private final int lines;
+
+    // The start of the allocated block, needed to release it
+    private final long baseAddress;
+
+    // The first slot, aligned to a cache line. Zero once the memory has been released
+    private volatile long address;
+
+    public CounterArray(int length) {
+        this(length, SlotLayout.PACKED);
+    }
+
+    /**
+     * @param length the number of the counters, all of them start at zero
+     * @param layout how the slots are laid out in memory
+     */
+    public CounterArray(int length, SlotLayout layout) {
+        if (length < 1) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+        if (layout == null) {
+            throw new IllegalArgumentException("The slot layout is required!");
+        }
+        this.length = length;
+        this.layout = layout;
+        this.lines = (length + SLOTS_PER_LINE - 1) / SLOTS_PER_LINE;
+
+        long size = (layout == SlotLayout.PADDED) ? (long) length * CACHE_LINE_SIZE : (long) lines * CACHE_LINE_SIZE;
+        baseAddress = UNSAFE.allocateMemory(size + CACHE_LINE_SIZE);
+        UNSAFE.setMemory(baseAddress, size + CACHE_LINE_SIZE, (byte) 0);
+        address = (baseAddress + CACHE_LINE_SIZE - 1) & ~(long) (CACHE_LINE_SIZE - 1);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public SlotLayout getLayout() {
+        return layout;
+    }
+
+    public long get(int index) {
+        return UNSAFE.getLongVolatile(null, slot(index));
+    }
+
+    public long incrementAndGet(int index) {
+        return addAndGet(index, 1);
+    }
+
+    public long getAndIncrement(int index) {
+        return getAndAdd(index, 1);
+    }
+
+    public long decrementAndGet(int index) {
+        return addAndGet(index, -1);
+    }
+
+    public long getAndDecrement(int index) {
+        return getAndAdd(index, -1);
+    }
+
+    public long addAndGet(int index, long delta) {
+        return getAndAdd(index, delta) + delta;
+    }
+
+    public long getAndAdd(int index, long delta) {
+        long slot = slot(index);
+        long current;
+        do {
+            current = UNSAFE.getLongVolatile(null, slot);
+        } while (!UNSAFE.compareAndSwapLong(null, slot, current, current + delta));
+        return current;
+    }
+
+    public boolean compareAndSet(int index, long expect, long update) {
+        return UNSAFE.compareAndSwapLong(null, slot(index), expect, update);
+    }
+
+    /**
+     * The function may be applied more than once when the slot is contended, hence it must be free of side effects.
+     */
+    public long updateAndGet(int index, UpdateFunction function) {
+        long slot = slot(index);
+        long current, next;
+        do {
+            current = UNSAFE.getLongVolatile(null, slot);
+            next = function.apply(current);
+        } while (!UNSAFE.compareAndSwapLong(null, slot, current, next));
+        return next;
+    }
+
+    /**
+     * The deltas are added as a single atomic step, the intermediate results are derived from the value it started with.
+     */
+    public long[] applyBatch(int index, long[] deltas) {
+        long total = 0;
+        for (long delta : deltas) {
+            total += delta;
+        }
+        long value = getAndAdd(index, total);
+        long[] results = new long[deltas.length];
+        for (int i = 0; i < deltas.length; i++) {
+            results[i] = value += deltas[i];
+        }
+        return results;
+    }
+
+    /**
+     * Releases the native memory. Must not be called while other threads are still using the array.
+     */
+    @Override
+    public synchronized void close() {
+        if (address != 0) {
+            address = 0;
+            UNSAFE.freeMemory(baseAddress);
+        }
+    }
+
+    public boolean isClosed() {
+        return address == 0;
+    }
+
+    // Translates the index into the address of its slot
+    private long slot(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length);
+        }
+        long start = address;
+        if (start == 0) {
+            throw new IllegalStateException("The counter array has been closed!");
+        }
+        switch (layout) {
+            case PADDED:
+                return start + (long) index * CACHE_LINE_SIZE;
+            case SPREAD:
+                // Consecutive keys land on consecutive lines, the line number wraps around after 'lines' keys
+                return start + (long) (index % lines) * CACHE_LINE_SIZE + (index / lines) * SLOT_SIZE;
+            default:
+                return start + (long) index * SLOT_SIZE;
+        }
+    }
+
+    private static Unsafe loadUnsafe() {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return (Unsafe) field.get(null);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new RuntimeException("Native memory access is not available!");
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Tomas Zezula
+ *
+ * A scheduler running on a private thread of its own. The thread is created and started
+ * along with the scheduler and keeps watching the activation list for incoming requests.
+ *
+ * A bounded activation list pushes back on the clients according to the overflow policy. The gauges
+ * (queue depth, time spent waiting for space, rejected requests) tell whether the capacity fits the load.
+ */
+public class DedicatedScheduler implements Scheduler {
+
+    // Activation List: incoming requests (tasks) are put into a queue
+    private final ActivationList<Runnable> taskQueue;
+
+    private final OverflowPolicy overflowPolicy;
+
+    // Gauges, only updated once the activation list is full, the fast path doesn't pay for them
+    private final AtomicLong enqueueWaitNanos = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public DedicatedScheduler(final SchedulerOptions options) {
+        if (options.getOverflowPolicy() == OverflowPolicy.DROP_OLDEST
+                && options.getActivationListType() == ActivationListType.RING_BUFFER) {
+            throw new IllegalArgumentException("Only the linked activation list can drop the oldest request!");
+        }
+        taskQueue = createActivationList(options);
+        overflowPolicy = options.getOverflowPolicy();
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (options.getMode() == SchedulingMode.BATCHED) {
+                        runBatches();
+                    } else {
+                        runSequentially();
+                    }
+                } catch (InterruptedException e) {
+                    throw new RuntimeException("Task execution was failed!");
+                }
+            }
+        }).start();
+    }
+
+    /**
+     * @throws RejectedExecutionException if the activation list is full and the policy is FAIL_FAST
+     */
+    @Override
+    public void enqueue(Runnable message) {
+        if (taskQueue.offer(message)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case FAIL_FAST:
+                rejectedCount.incrementAndGet();
+                throw new RejectedExecutionException("The activation list is full!");
+            case DROP_OLDEST:
+                dropOldest(message);
+                break;
+            default:
+                block(message);
+        }
+    }
+
+    /**
+     * @return the number of the pending requests
+     */
+    public int getQueueDepth() {
+        return taskQueue.size();
+    }
+
+    /**
+     * @return the total time the clients have spent waiting for space in the activation list, in nanoseconds
+     */
+    public long getEnqueueWaitNanos() {
+        return enqueueWaitNanos.get();
+    }
+
+    /**
+     * @return the number of the requests refused (FAIL_FAST) or discarded (DROP_OLDEST) so far
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    private void block(Runnable message) {
+        long start = System.nanoTime();
+        try {
+            taskQueue.put(message);
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Task scheduling was interrupted!");
+        } finally {
+            enqueueWaitNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private void dropOldest(Runnable message) {
+        do {
+            // The scheduler might have taken the oldest request in the meantime, then there is space again
+            Runnable oldest = taskQueue.poll();
+            if (oldest != null) {
+                rejectedCount.incrementAndGet();
+                reject(oldest);
+            }
+        } while (!taskQueue.offer(message));
+    }
+
+    // Whoever waits on the dropped request must learn about it
+    private static void reject(Runnable message) {
+        if (message instanceof Future) {
+            ((Future<?>) message).cancel(false);
+        } else if (message instanceof Rejectable) {
+            ((Rejectable) message).reject(
+                    new RejectedExecutionException("The request was dropped to make room for a newer one!"));
+        }
+    }
+
+    private static ActivationList<Runnable> createActivationList(SchedulerOptions options) {
+        switch (options.getActivationListType()) {
+            case RING_BUFFER:
+                return new RingBuffer<>(options.isBounded() ? options.getCapacity() : SchedulerOptions.DEFAULT_CAPACITY,
+                        options.getWaitStrategy());
+            default:
+                return options.isBounded()
+                        ? new LinkedActivationList<Runnable>(options.getCapacity())
+                        : new LinkedActivationList<Runnable>();
+        }
+    }
+
+    private void runSequentially() throws InterruptedException {
+        // This is the actual task scheduler. It only allows for a single task at a time.
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            // busy waiting
+            while (true) {
+                // The task completes itself, which directly wakes up the waiting client
+                Future<?> future = executorService.submit(taskQueue.take());
+                while (!future.isDone())
+                    ; // wait until the results are ready
+            }
+        }
+        finally {
+            executorService.shutdown();
+        }
+    }
+
+    private void runBatches() throws InterruptedException {
+        final List<Runnable> batch = new ArrayList<>();
+        while (true) {
+            // Block until there is some work to do, then grab everything else that is pending
+            batch.add(taskQueue.take());
+            taskQueue.drainTo(batch);
+
+            // The tasks are applied in order on this very thread, each of them completes its own client.
+            // An indexed loop, so that no iterator gets allocated per batch.
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).run();
+            }
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @author Tomas Zezula
+ *
+ * A file of counters which survive a restart. The values live in a memory-mapped file, so there is
+ * neither a serialization pass on the way out nor a log to replay on the way in: opening the file
+ * maps it and the counters are right there, no matter how many of them.
+ *
+ * The mapped region is the servant of an active object. It is only ever touched by a single private
+ * thread, which applies the updates in order and batches the flushes to the disk:
+ *
+ * - after a given number of updates and / or periodically
+ * - on demand, see force()
+ * - on close()
+ *
+ * Crash consistency relies on a write-ahead sequence number in the header. The first update after a flush
+ * advances the sequence before touching any counter, a flush completes by committing the very same sequence.
+ * A file whose sequence doesn't match the committed one was not flushed after its last updates, see isConsistent().
+ *
+ * There are two ways of reaching a counter. The index-based operations (incrementAndGet(index), ...) hand a task
+ * straight to the private thread, there is nothing to create or keep per counter. counter(index) returns a Counter
+ * view, which is an active object of its own. The views are created lazily, once per counter, and cached.
+ *
+ * Layout: a header of a single cache line (magic, length, sequence, committed sequence) followed by the counters.
+ */
+public class DurableCounters implements Closeable {
+
+    private static final long MAGIC = 0x436f756e74657273L;
+
+    private static final int MAGIC_OFFSET = 0;
+
+    private static final int LENGTH_OFFSET = 8;
+
+    private static final int SEQUENCE_OFFSET = 16;
+
+    private static final int COMMITTED_OFFSET = 24;
+
+    private static final int HEADER_SIZE = 64;
+
+    private static final int SLOT_SIZE = 8;
+
+    // Never flushes on its own
+    public static final int NO_AUTO_FLUSH = 0;
+
+    private final int length;
+
+    private final RandomAccessFile file;
+
+    private final MappedByteBuffer buffer;
+
+    // A single worker, the only thread which ever touches the mapped region
+    private final SharedScheduler owner;
+
+    private final Scheduler scheduler;
+
+    // The Counter views handed out so far, created along with the first view
+    private volatile AtomicReferenceArray<Counter> views;
+
+    // Fires the periodic flushes, null if there are none
+    private final Timer flushTimer;
+
+    private final int flushEvery;
+
+    // Whether the file was flushed after its last updates when it was opened
+    private final boolean consistent;
+
+    // Owned by the private thread
+    private long sequence;
+
+    private boolean dirty;
+
+    private int pendingUpdates;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    public DurableCounters(File path, int length) throws IOException {
+        this(path, length, NO_AUTO_FLUSH, NO_AUTO_FLUSH);
+    }
+
+    /**
+     * Opens the file, or creates it with all of the counters at zero.
+     *
+     * @param path              the file
+     * @param length            the number of the counters, must match an existing file
+     * @param flushEvery        flush after so many updates, NO_AUTO_FLUSH to disable
+     * @param flushIntervalMillis flush periodically, NO_AUTO_FLUSH to disable
+     * @throws IOException      if the file can't be opened or mapped
+     */
+    public DurableCounters(File path, int length, int flushEvery, long flushIntervalMillis) throws IOException {
+        if (length < 1 || length > (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+        if (flushEvery < 0 || flushIntervalMillis < 0) {
+            throw new IllegalArgumentException("Invalid flush policy!");
+        }
+        this.length = length;
+        this.flushEvery = flushEvery;
+
+        file = new RandomAccessFile(path, "rw");
+        try {
+            boolean created = file.length() == 0;
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) length * SLOT_SIZE);
+            if (created) {
+                buffer.putLong(MAGIC_OFFSET, MAGIC);
+                buffer.putInt(LENGTH_OFFSET, length);
+                buffer.force();
+            } else if (buffer.getLong(MAGIC_OFFSET) != MAGIC || buffer.getInt(LENGTH_OFFSET) != length) {
+                throw new IllegalArgumentException("Not a file of " + length + " counters: " + path);
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+        sequence = buffer.getLong(SEQUENCE_OFFSET);
+        consistent = sequence == buffer.getLong(COMMITTED_OFFSET);
+
+        owner = new SharedScheduler(1);
+        scheduler = owner.newMailbox();
+        if (flushIntervalMillis > 0) {
+            flushTimer = new Timer("durable-counters-flush", true);
+            flushTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    if (!owner.isClosed()) {
+                        scheduler.enqueue(flushTask);
+                    }
+                }
+            }, flushIntervalMillis, flushIntervalMillis);
+        } else {
+            flushTimer = null;
+        }
+    }
+
+    /**
+     * The view is an active object, it is created on the first call and the very same view is returned ever after.
+     *
+     * @param index the position of the counter in the file
+     * @return a thread-safe view of the counter
+     */
+    public Counter counter(int index) {
+        int offset = offsetOf(index);
+        AtomicReferenceArray<Counter> cached = views();
+        Counter view = cached.get(index);
+        if (view == null) {
+            // Racing threads might both create a view, only one of them is kept
+            cached.compareAndSet(index, null, ActiveObjects.create(Counter.class, new Slot(offset), scheduler));
+            view = cached.get(index);
+        }
+        return view;
+    }
+
+    public long get(int index) {
+        final int offset = offsetOf(index);
+        return await(new FutureTask<>(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return load(offset);
+            }
+        }));
+    }
+
+    public long incrementAndGet(int index) {
+        return addAndGet(index, 1);
+    }
+
+    public long getAndIncrement(int index) {
+        return getAndAdd(index, 1);
+    }
+
+    public long decrementAndGet(int index) {
+        return addAndGet(index, -1);
+    }
+
+    public long getAndDecrement(int index) {
+        return getAndAdd(index, -1);
+    }
+
+    public long addAndGet(int index, final long delta) {
+        final int offset = offsetOf(index);
+        return await(new FutureTask<>(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return store(offset, load(offset) + delta);
+            }
+        }));
+    }
+
+    public long getAndAdd(int index, long delta) {
+        return addAndGet(index, delta) - delta;
+    }
+
+    public boolean compareAndSet(int index, final long expect, final long update) {
+        final int offset = offsetOf(index);
+        return await(new FutureTask<>(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                if (load(offset) != expect) {
+                    return false;
+                }
+                store(offset, update);
+                return true;
+            }
+        }));
+    }
+
+    public long updateAndGet(int index, final UpdateFunction function) {
+        final int offset = offsetOf(index);
+        return await(new FutureTask<>(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return store(offset, function.apply(load(offset)));
+            }
+        }));
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return true if the file was flushed after its last updates, before it was opened
+     */
+    public boolean isConsistent() {
+        return consistent;
+    }
+
+    /**
+     * @return the sequence number of the latest batch of updates
+     */
+    public long getSequence() {
+        return await(new FutureTask<>(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return sequence;
+            }
+        }));
+    }
+
+    /**
+     * Writes all of the updates so far to the disk, blocks until done.
+     */
+    public void force() {
+        await(new FutureTask<Long>(flushTask, null));
+    }
+
+    /**
+     * Flushes the pending updates and stops the private thread.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (owner.isClosed()) {
+            return;
+        }
+        if (flushTimer != null) {
+            flushTimer.cancel();
+        }
+        force();
+        owner.close();
+        file.close();
+    }
+
+    private <V> V await(FutureTask<V> task) {
+        scheduler.enqueue(task);
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Task scheduling was interrupted!");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Task execution was failed!", e.getCause());
+        }
+    }
+
+    private int offsetOf(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length);
+        }
+        return HEADER_SIZE + index * SLOT_SIZE;
+    }
+
+    private AtomicReferenceArray<Counter> views() {
+        AtomicReferenceArray<Counter> cached = views;
+        if (cached == null) {
+            synchronized (this) {
+                cached = views;
+                if (cached == null) {
+                    views = cached = new AtomicReferenceArray<>(length);
+                }
+            }
+        }
+        return cached;
+    }
+
+    // Only ever called by the private thread
+    private long load(int offset) {
+        return buffer.getLong(offset);
+    }
+
+    // Only ever called by the private thread
+    private long store(int offset, long value) {
+        beginUpdate();
+        buffer.putLong(offset, value);
+        endUpdate();
+        return value;
+    }
+
+    // Opens a new batch of updates, the sequence goes out before any of the counters changes
+    private void beginUpdate() {
+        if (!dirty) {
+            dirty = true;
+            buffer.putLong(SEQUENCE_OFFSET, ++sequence);
+            // The dirty pages are written back in no particular order, the sequence must be on the disk first.
+            // Only the header has changed since the last flush, hence it's the only page being written.
+            buffer.force();
+        }
+    }
+
+    private void endUpdate() {
+        if (flushEvery != NO_AUTO_FLUSH && ++pendingUpdates >= flushEvery) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (!dirty) {
+            return;
+        }
+        // The counters first, the commit mark only once they are safely on the disk
+        buffer.force();
+        buffer.putLong(COMMITTED_OFFSET, sequence);
+        buffer.force();
+        dirty = false;
+        pendingUpdates = 0;
+    }
+
+    // The servant: a single counter in the mapped region, only ever used by the private thread
+    private class Slot implements Counter {
+
+        private final int offset;
+
+        private Slot(int offset) {
+            this.offset = offset;
+        }
+
+        @Override
+        public long get() {
+            return load(offset);
+        }
+
+        @Override
+        public long incrementAndGet() {
+            return addAndGet(1);
+        }
+
+        @Override
+        public long getAndIncrement() {
+            return getAndAdd(1);
+        }
+
+        @Override
+        public long decrementAndGet() {
+            return addAndGet(-1);
+        }
+
+        @Override
+        public long getAndDecrement() {
+            return getAndAdd(-1);
+        }
+
+        @Override
+        public long addAndGet(long delta) {
+            return set(get() + delta);
+        }
+
+        @Override
+        public long getAndAdd(long delta) {
+            long value = get();
+            set(value + delta);
+            return value;
+        }
+
+        @Override
+        public boolean compareAndSet(long expect, long update) {
+            if (get() != expect) {
+                return false;
+            }
+            set(update);
+            return true;
+        }
+
+        @Override
+        public long updateAndGet(UpdateFunction function) {
+            return set(function.apply(get()));
+        }
+
+        @Override
+        public long[] applyBatch(long[] deltas) {
+            long[] results = new long[deltas.length];
+            long value = get();
+            for (int i = 0; i < deltas.length; i++) {
+                results[i] = value += deltas[i];
+            }
+            set(value);
+            return results;
+        }
+
+        private long set(long value) {
+            return store(offset, value);
+        }
+    }
+}
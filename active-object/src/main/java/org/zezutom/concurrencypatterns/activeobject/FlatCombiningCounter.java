@@ -0,0 +1,287 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Implements the org.zezutom.concurrencypatterns.activeobject.Counter by using flat combining:
+ *
+ * - Each client thread owns a publication record, where it announces the operation it wants to perform
+ * - Whichever thread manages to acquire the combiner lock becomes the combiner
+ * - The combiner applies all of the pending operations in a single pass and hands the results back
+ * - The remaining clients just wait for their records to be served (or for a chance to combine themselves)
+ *
+ * Just like with the Active Object, the operations are serialized and the internal state is only ever
+ * touched by a single thread at a time. There is no dedicated thread though, the work is done by the clients.
+ *
+ * The records age: each of them is stamped by the combining pass which served it last. A record which has been idle
+ * for MAX_IDLE_PASSES passes is unlinked by the combiner, so that the records of the threads which are gone
+ * don't pile up (nor slow down each pass). Its thread simply enlists the record again on its next request.
+ */
+public class FlatCombiningCounter implements Counter {
+
+    // Operation codes, NONE marks a record with no pending request
+    private static final int NONE = 0;
+    private static final int GET = 1;
+    private static final int INCREMENT_AND_GET = 2;
+    private static final int GET_AND_INCREMENT = 3;
+    private static final int DECREMENT_AND_GET = 4;
+    private static final int GET_AND_DECREMENT = 5;
+    private static final int ADD_AND_GET = 6;
+    private static final int GET_AND_ADD = 7;
+    private static final int COMPARE_AND_SET = 8;
+    private static final int UPDATE_AND_GET = 9;
+    private static final int APPLY_BATCH = 10;
+
+    // How many combining passes a record may stay idle before it is unlinked from the publication list
+    public static final int MAX_IDLE_PASSES = 1024;
+
+    // How many times a waiting client spins before it yields the processor
+    private static final int SPINS_BEFORE_YIELD = 64;
+
+    // The internal state, only ever accessed by the combiner
+    private long value;
+
+    // Whoever holds the lock is the combiner
+    private final ReentrantLock combinerLock = new ReentrantLock();
+
+    // Publication list: records of the threads which have used the counter lately
+    private final AtomicReference<Record> head = new AtomicReference<>();
+
+    // The number of the combining passes so far, only ever written by the combiner
+    private volatile long pass;
+
+    // Each thread publishes its requests via a record of its own
+    private final ThreadLocal<Record> records = new ThreadLocal<Record>() {
+        @Override
+        protected Record initialValue() {
+            return new Record();
+        }
+    };
+
+    public FlatCombiningCounter(long value) {
+        this.value = value;
+    }
+
+    @Override
+    public long get() {
+        return execute(GET);
+    }
+
+    @Override
+    public long incrementAndGet() {
+        return execute(INCREMENT_AND_GET);
+    }
+
+    @Override
+    public long getAndIncrement() {
+        return execute(GET_AND_INCREMENT);
+    }
+
+    @Override
+    public long decrementAndGet() {
+        return execute(DECREMENT_AND_GET);
+    }
+
+    @Override
+    public long getAndDecrement() {
+        return execute(GET_AND_DECREMENT);
+    }
+
+    @Override
+    public long addAndGet(long delta) {
+        Record record = records.get();
+        record.operand = delta;
+        return execute(record, ADD_AND_GET);
+    }
+
+    @Override
+    public long getAndAdd(long delta) {
+        Record record = records.get();
+        record.operand = delta;
+        return execute(record, GET_AND_ADD);
+    }
+
+    @Override
+    public boolean compareAndSet(long expect, long update) {
+        Record record = records.get();
+        record.operand = expect;
+        record.update = update;
+        return execute(record, COMPARE_AND_SET) != 0;
+    }
+
+    @Override
+    public long updateAndGet(UpdateFunction function) {
+        if (function == null) {
+            throw new IllegalArgumentException("The update function is required!");
+        }
+        Record record = records.get();
+        record.function = function;
+        return execute(record, UPDATE_AND_GET);
+    }
+
+    @Override
+    public long[] applyBatch(long[] deltas) {
+        long[] results = new long[deltas.length];
+        Record record = records.get();
+        record.deltas = deltas;
+        record.results = results;
+        execute(record, APPLY_BATCH);
+        return results;
+    }
+
+    private long execute(int opcode) {
+        return execute(records.get(), opcode);
+    }
+
+    private long execute(Record record, int opcode) {
+        if (!record.enlisted) {
+            enlist(record);
+        }
+        // Publish the request, the volatile write makes it visible to the combiner
+        record.failure = null;
+        record.opcode = opcode;
+
+        int spins = 0;
+        while (record.opcode != NONE) {
+            if (!record.enlisted) {
+                enlist(record);     // unlinked as idle right before the request got published
+            } else if (combinerLock.tryLock()) {
+                try {
+                    combine();
+                } finally {
+                    combinerLock.unlock();
+                }
+            } else if (++spins % SPINS_BEFORE_YIELD == 0) {
+                Thread.yield();
+            }
+        }
+        if (record.failure != null) {
+            throw record.failure;
+        }
+        return record.result;
+    }
+
+    // Only called by the owner of the record, once it is not in the list
+    private void enlist(Record record) {
+        record.age = pass;
+        record.enlisted = true;
+        Record first;
+        do {
+            first = head.get();
+            record.next = first;
+        } while (!head.compareAndSet(first, record));
+    }
+
+    /**
+     * @return the number of the records in the publication list, the records of idle threads are eventually unlinked
+     */
+    public int getRecordCount() {
+        combinerLock.lock();
+        try {
+            int count = 0;
+            for (Record record = head.get(); record != null; record = record.next) {
+                count++;
+            }
+            return count;
+        } finally {
+            combinerLock.unlock();
+        }
+    }
+
+    // Serves all of the pending requests, the own one included, and unlinks the records which have been idle for too long
+    private void combine() {
+        final long current = ++pass;
+        Record previous = null;
+        Record next;
+        for (Record record = head.get(); record != null; record = next) {
+            // Read ahead, the owner of an unlinked record might enlist it again right away
+            next = record.next;
+            int opcode = record.opcode;
+            if (opcode == NONE) {
+                // The head is left alone, the clients keep pushing new records in front of it
+                if (previous != null && current - record.age > MAX_IDLE_PASSES) {
+                    previous.next = next;
+                    record.enlisted = false;    // the owner enlists the record again on its next request
+                    continue;
+                }
+            } else {
+                record.age = current;
+                try {
+                    record.result = apply(record, opcode);
+                } catch (RuntimeException e) {
+                    record.failure = e;
+                } finally {
+                    record.function = null;
+                    record.deltas = null;
+                    record.results = null;
+                    record.opcode = NONE;   // hands the result back to the waiting client
+                }
+            }
+            previous = record;
+        }
+    }
+
+    private long apply(Record record, int opcode) {
+        switch (opcode) {
+            case GET: return value;
+            case INCREMENT_AND_GET: return ++value;
+            case GET_AND_INCREMENT: return value++;
+            case DECREMENT_AND_GET: return --value;
+            case GET_AND_DECREMENT: return value--;
+            case ADD_AND_GET: return value += record.operand;
+            case GET_AND_ADD: {
+                long previous = value;
+                value += record.operand;
+                return previous;
+            }
+            case COMPARE_AND_SET: {
+                if (value != record.operand) {
+                    return 0;
+                }
+                value = record.update;
+                return 1;
+            }
+            case UPDATE_AND_GET: return value = record.function.apply(value);
+            case APPLY_BATCH: {
+                long[] deltas = record.deltas;
+                for (int i = 0; i < deltas.length; i++) {
+                    record.results[i] = value += deltas[i];
+                }
+                return value;
+            }
+            default: throw new IllegalStateException("Unknown operation: " + opcode);
+        }
+    }
+
+    // Publication record: the arguments are written before the opcode is set and the result
+    // is written before the opcode is reset, hence both are safely published
+    private static class Record {
+
+        private volatile int opcode = NONE;
+
+        // Whether the record is in the publication list, only cleared by the combiner
+        private volatile boolean enlisted;
+
+        // The combining pass which served the record last
+        private long age;
+
+        private long operand;
+
+        private long update;
+
+        private UpdateFunction function;
+
+        private long[] deltas;
+
+        private long[] results;
+
+        private long result;
+
+        private RuntimeException failure;
+
+        private Record next;
+    }
+}
@@ -0,0 +1,58 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * @author Tomas Zezula
+ *
+ * The default activation list, backed by a java.util.concurrent.LinkedBlockingQueue.
+ * Each request allocates a queue node, both ends of the queue are guarded by locks.
+ * Any thread may poll, which is what dropping the oldest request on overflow relies on.
+ */
+public class LinkedActivationList<E> implements ActivationList<E> {
+
+    private final BlockingQueue<E> queue;
+
+    public LinkedActivationList() {
+        queue = new LinkedBlockingQueue<>();
+    }
+
+    /**
+     * @param capacity the maximum number of the pending requests
+     */
+    public LinkedActivationList(int capacity) {
+        queue = new LinkedBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        queue.put(e);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        return queue.offer(e);
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        return queue.take();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> batch) {
+        return queue.drainTo(batch);
+    }
+
+    @Override
+    public E poll() {
+        return queue.poll();
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+}
@@ -0,0 +1,17 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Determines what happens to a request arriving at a full activation list:
+ *
+ * - BLOCK: the client waits for space to become available, the default
+ * - FAIL_FAST: the request is refused, the client gets a RejectedExecutionException
+ * - DROP_OLDEST: the oldest pending request is discarded to make room, its client is notified
+ *
+ * There is no caller-runs option on purpose. Running a request on the client's thread would let two
+ * threads into the servant at once, which is exactly what the active object is there to prevent.
+ */
+public enum OverflowPolicy {
+    BLOCK, FAIL_FAST, DROP_OLDEST
+}
@@ -0,0 +1,26 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Determines how org.zezutom.concurrencypatterns.activeobject.ThreadSafeCounter serves the read-only get().
+ */
+public enum ReadMode {
+
+    /**
+     * The read is a message like any other. It is queued behind all of the pending requests,
+     * hence it reflects every request which was enqueued before it.
+     */
+    STRICT,
+
+    /**
+     * The private thread publishes the latest value after each applied message and the read
+     * returns it straight away, without touching the activation list.
+     *
+     * Staleness bound: the value reflects all of the requests applied so far. It lags behind by
+     * no more than the requests which are still pending in the activation list at the time of the read.
+     * A client always sees the effect of its own completed blocking calls (read-your-writes),
+     * that doesn't apply to the fire-and-forget calls though.
+     */
+    PUBLISHED
+}
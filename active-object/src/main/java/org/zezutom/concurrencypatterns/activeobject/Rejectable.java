@@ -0,0 +1,16 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+/**
+ * @author Tomas Zezula
+ *
+ * A request which can be told it is never going to run, so that its client doesn't wait forever.
+ * The scheduler uses it when a request gets dropped from a full activation list. Requests implementing
+ * java.util.concurrent.Future are cancelled instead.
+ */
+public interface Rejectable {
+
+    /**
+     * @param cause the exception the client is supposed to see
+     */
+    void reject(RuntimeException cause);
+}
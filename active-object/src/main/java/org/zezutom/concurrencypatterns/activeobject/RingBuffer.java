@@ -0,0 +1,211 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author Tomas Zezula
+ *
+ * A bounded, lock-free, multi-producer / single-consumer activation list:
+ *
+ * - The slots are allocated upfront, enqueueing a request creates no garbage
+ * - Producers claim a slot by a CAS on the tail sequence, then publish the request into the slot
+ * - The single consumer takes the requests in order and frees the slots
+ * - Both sequences are padded, so that the producers and the consumer don't fight over a cache line
+ * - A full buffer makes the producers wait, an empty one makes the consumer wait, see WaitStrategy
+ *
+ * Only a single thread may ever take from the buffer.
+ *
+ * @param <E> the type of the requests
+ */
+public class RingBuffer<E> implements ActivationList<E> {
+
+    private final AtomicReferenceArray<E> slots;
+
+    private final int capacity;
+
+    private final int mask;
+
+    // The next sequence to be claimed by a producer
+    private final Sequence tail = new Sequence();
+
+    // The next sequence to be taken by the consumer
+    private final Sequence head = new Sequence();
+
+    private final WaitStrategy waitStrategy;
+
+    // The consumer, as long as it is parked, see WaitStrategy.PARK
+    private volatile Thread parkedConsumer;
+
+    /**
+     * @param capacity the number of slots, rounded up to the next power of two
+     * @param waitStrategy determines how the producers and the consumer wait on each other
+     */
+    public RingBuffer(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        if (waitStrategy == null) {
+            throw new IllegalArgumentException("The wait strategy is required!");
+        }
+        this.capacity = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+        this.waitStrategy = waitStrategy;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+
+        // Claim a slot
+        long sequence;
+        while (true) {
+            sequence = tail.get();
+            if (sequence - head.get() >= capacity) {
+                // The buffer is full, wait for the consumer to catch up
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                waitStrategy.backOff();
+            } else if (tail.compareAndSet(sequence, sequence + 1)) {
+                break;
+            }
+        }
+
+        publish(sequence, e);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+
+        // Claim a slot, give up as soon as the buffer is full
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head.get() >= capacity) {
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        publish(sequence, e);
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        int index = index(head.get());
+        E e;
+        while ((e = slots.get(index)) == null) {
+            // Either empty, or a producer has claimed the slot but not published into it yet
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (waitStrategy == WaitStrategy.PARK) {
+                parkedConsumer = Thread.currentThread();
+                if (slots.get(index) == null) {
+                    LockSupport.park(this);
+                }
+                parkedConsumer = null;
+            } else {
+                waitStrategy.backOff();
+            }
+        }
+        release(index);
+        return e;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> batch) {
+        int count = 0;
+        while (true) {
+            int index = index(head.get());
+            E e = slots.get(index);
+            if (e == null) {
+                return count;
+            }
+            release(index);
+            batch.add(e);
+            count++;
+        }
+    }
+
+    /**
+     * Only ever called by the consumer, the producers can't take the requests back.
+     */
+    @Override
+    public E poll() {
+        int index = index(head.get());
+        E e = slots.get(index);
+        if (e != null) {
+            release(index);
+        }
+        return e;
+    }
+
+    /**
+     * @return an estimate of the number of the pending requests
+     */
+    @Override
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    private void publish(long sequence, E e) {
+        // Publish the request, the volatile write makes it visible to the consumer
+        slots.set(index(sequence), e);
+
+        Thread consumer = parkedConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    // Frees the slot and moves on to the next one, only called by the consumer
+    private void release(int index) {
+        slots.lazySet(index, null);
+        head.lazySet(head.get() + 1);
+    }
+
+    private int index(long sequence) {
+        return (int) sequence & mask;
+    }
+
+    // A sequence padded on both sides, it never shares a cache line with anything else
+    private static class Sequence {
+
+        private static final AtomicLongFieldUpdater<Sequence> VALUE = AtomicLongFieldUpdater.newUpdater(Sequence.class, "value");
+
+        @SuppressWarnings("unused")
+        private long p0, p1, p2, p3, p4, p5, p6;
+
+        private volatile long value;
+
+        @SuppressWarnings("unused")
+        private long q0, q1, q2, q3, q4, q5, q6;
+
+        private long get() {
+            return value;
+        }
+
+        private void lazySet(long value) {
+            VALUE.lazySet(this, value);
+        }
+
+        private boolean compareAndSet(long expect, long update) {
+            return VALUE.compareAndSet(this, expect, update);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Scheduler of an active object: accepts messages (requests) and executes them one at a time,
+ * in the order they were enqueued. The messages never run concurrently to each other,
+ * hence the state they work with needs no additional synchronization.
+ */
+public interface Scheduler {
+
+    /**
+     * Puts a message into the activation list and returns instantly
+     * @param message the request to be executed on the private thread
+     */
+    void enqueue(Runnable message);
+}
@@ -0,0 +1,113 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Configures the scheduler of an active object. The options are immutable, each of the 'with' methods
+ * yields a modified copy:
+ *
+ *   SchedulerOptions.defaults().withMode(SchedulingMode.BATCHED)
+ */
+public class SchedulerOptions {
+
+    // The default capacity of a bounded activation list
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    // No limit, only the linked activation list can be unbounded
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private static final SchedulerOptions DEFAULTS = new SchedulerOptions(SchedulingMode.SEQUENTIAL,
+            ActivationListType.LINKED, UNBOUNDED, WaitStrategy.PARK, OverflowPolicy.BLOCK);
+
+    private final SchedulingMode mode;
+
+    private final ActivationListType activationListType;
+
+    private final int capacity;
+
+    private final WaitStrategy waitStrategy;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private SchedulerOptions(SchedulingMode mode, ActivationListType activationListType, int capacity,
+                             WaitStrategy waitStrategy, OverflowPolicy overflowPolicy) {
+        this.mode = mode;
+        this.activationListType = activationListType;
+        this.capacity = capacity;
+        this.waitStrategy = waitStrategy;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public static SchedulerOptions defaults() {
+        return DEFAULTS;
+    }
+
+    public SchedulerOptions withMode(SchedulingMode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("The scheduling mode is required!");
+        }
+        return new SchedulerOptions(mode, activationListType, capacity, waitStrategy, overflowPolicy);
+    }
+
+    public SchedulerOptions withActivationList(ActivationListType activationListType) {
+        if (activationListType == null) {
+            throw new IllegalArgumentException("The activation list type is required!");
+        }
+        return new SchedulerOptions(mode, activationListType, capacity, waitStrategy, overflowPolicy);
+    }
+
+    /**
+     * @param capacity the maximum number of the pending requests, the ring buffer rounds it up
+     *                 to a power of two and uses DEFAULT_CAPACITY unless told otherwise
+     */
+    public SchedulerOptions withCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        return new SchedulerOptions(mode, activationListType, capacity, waitStrategy, overflowPolicy);
+    }
+
+    /**
+     * @param waitStrategy how the clients and the scheduler wait on the ring buffer
+     */
+    public SchedulerOptions withWaitStrategy(WaitStrategy waitStrategy) {
+        if (waitStrategy == null) {
+            throw new IllegalArgumentException("The wait strategy is required!");
+        }
+        return new SchedulerOptions(mode, activationListType, capacity, waitStrategy, overflowPolicy);
+    }
+
+    /**
+     * @param overflowPolicy what happens to a request arriving at a full activation list
+     */
+    public SchedulerOptions withOverflowPolicy(OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("The overflow policy is required!");
+        }
+        return new SchedulerOptions(mode, activationListType, capacity, waitStrategy, overflowPolicy);
+    }
+
+    public SchedulingMode getMode() {
+        return mode;
+    }
+
+    public ActivationListType getActivationListType() {
+        return activationListType;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public boolean isBounded() {
+        return capacity != UNBOUNDED;
+    }
+}
@@ -0,0 +1,22 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Determines how the scheduler of an active object consumes its activation list.
+ */
+public enum SchedulingMode {
+
+    /**
+     * Messages are dequeued one by one and handed over to a single-threaded executor.
+     * The scheduler only proceeds once the current message has been processed.
+     */
+    SEQUENTIAL,
+
+    /**
+     * All of the pending messages are drained at once and applied in a single pass
+     * directly on the scheduler thread. The clients waiting on the drained messages
+     * are all completed within the same pass, which amortizes the handoff under bursts.
+     */
+    BATCHED
+}
@@ -0,0 +1,119 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Hands out unique ids without a round trip per id. Each thread reserves a block of ids from the backing
+ * counter by a single getAndAdd and then serves its own calls from that block, no synchronization involved.
+ *
+ * The block size adapts to the demand. A thread which runs through its block faster than the growth window
+ * gets twice as many ids the next time, up to the maximum block size. A thread which takes its time
+ * falls back towards the initial block size, so that not too many ids are left unused.
+ *
+ * Guarantees:
+ * - the ids are unique, provided the backing counter is only ever moved forward by the generator
+ * - the ids are increasing for each thread, not across the threads
+ * - the ids are not contiguous, whatever is left of a block when its thread is gone is never used
+ */
+public class SequenceGenerator {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1000;
+
+    // A block used up faster than this is considered too small
+    public static final long DEFAULT_GROWTH_WINDOW_NANOS = 1000000L;
+
+    private final Counter counter;
+
+    private final int initialBlockSize;
+
+    private final int maxBlockSize;
+
+    private final long growthWindowNanos;
+
+    // The block of the current thread, a single allocation per thread
+    private final ThreadLocal<Block> blocks = new ThreadLocal<Block>() {
+        @Override
+        protected Block initialValue() {
+            return new Block();
+        }
+    };
+
+    public SequenceGenerator(Counter counter) {
+        this(counter, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param counter   the source of the ids, its current value is the next id to hand out
+     * @param blockSize the number of ids reserved at once, it stays fixed
+     */
+    public SequenceGenerator(Counter counter, int blockSize) {
+        this(counter, blockSize, blockSize, DEFAULT_GROWTH_WINDOW_NANOS);
+    }
+
+    /**
+     * @param counter           the source of the ids, its current value is the next id to hand out
+     * @param initialBlockSize  the number of ids reserved at once at first
+     * @param maxBlockSize      the block size never grows beyond
+     * @param growthWindowNanos a block used up in a shorter time makes the next one twice as large
+     */
+    public SequenceGenerator(Counter counter, int initialBlockSize, int maxBlockSize, long growthWindowNanos) {
+        if (counter == null) {
+            throw new IllegalArgumentException("The counter is required!");
+        }
+        if (initialBlockSize < 1 || maxBlockSize < initialBlockSize) {
+            throw new IllegalArgumentException("Invalid block size: " + initialBlockSize + ", max: " + maxBlockSize);
+        }
+        if (growthWindowNanos < 0) {
+            throw new IllegalArgumentException("Invalid growth window: " + growthWindowNanos);
+        }
+        this.counter = counter;
+        this.initialBlockSize = initialBlockSize;
+        this.maxBlockSize = maxBlockSize;
+        this.growthWindowNanos = growthWindowNanos;
+    }
+
+    /**
+     * @return an id no other call has returned, greater than any id previously returned to the current thread
+     */
+    public long nextId() {
+        Block block = blocks.get();
+        if (block.next == block.limit) {
+            reserve(block);
+        }
+        return block.next++;
+    }
+
+    /**
+     * @return the number of ids the current thread is going to reserve next time
+     */
+    public int getBlockSize() {
+        Block block = blocks.get();
+        return (block.size == 0) ? initialBlockSize : block.size;
+    }
+
+    private void reserve(Block block) {
+        long now = System.nanoTime();
+        if (block.size == 0) {
+            block.size = initialBlockSize;
+        } else if (now - block.reservedAt < growthWindowNanos) {
+            block.size = (int) Math.min((long) block.size * 2, maxBlockSize);
+        } else {
+            block.size = Math.max(block.size / 2, initialBlockSize);
+        }
+        block.next = counter.getAndAdd(block.size);
+        block.limit = block.next + block.size;
+        block.reservedAt = now;
+    }
+
+    // The ids from 'next' up to, but excluding, 'limit' are reserved for a single thread
+    private static class Block {
+
+        private long next;
+
+        private long limit;
+
+        private int size;
+
+        private long reservedAt;
+    }
+}
@@ -0,0 +1,144 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Multiplexes any number of active objects onto a small pool of worker threads (actor-style):
+ *
+ * - Each active object gets a mailbox of its own, see newMailbox()
+ * - A mailbox with pending messages is handed over to one of the workers
+ * - A mailbox is never processed by two workers at the same time, hence the messages of an active object
+ *   still run one at a time, in the order they were enqueued
+ * - After a number of messages the worker moves on, so that a busy mailbox doesn't starve the others
+ * - An idle mailbox holds no thread, the thread count stays fixed regardless of the number of active objects
+ *
+ * The scheduler must be closed once it is no longer needed.
+ */
+public class SharedScheduler implements Closeable {
+
+    // How many messages a worker processes before it moves on to another mailbox
+    public static final int DEFAULT_THROUGHPUT = 64;
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final ExecutorService workers;
+
+    private final int throughput;
+
+    public SharedScheduler(int threads) {
+        this(threads, DEFAULT_THROUGHPUT);
+    }
+
+    public SharedScheduler(int threads, int throughput) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        if (throughput < 1) {
+            throw new IllegalArgumentException("Invalid throughput: " + throughput);
+        }
+        this.throughput = throughput;
+        this.workers = Executors.newFixedThreadPool(threads, new WorkerFactory());
+    }
+
+    /**
+     * Creates a scheduler for a single active object, all of the mailboxes share the worker threads
+     * @return the mailbox
+     */
+    public Scheduler newMailbox() {
+        return new Mailbox();
+    }
+
+    /**
+     * Stops accepting new messages and lets the workers finish the pending ones
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+    }
+
+    /**
+     * Waits for the pending messages to be processed after the scheduler has been closed
+     * @return true if all of the workers are done, false if the timeout elapsed first
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return workers.awaitTermination(timeout, unit);
+    }
+
+    public boolean isClosed() {
+        return workers.isShutdown();
+    }
+
+    private class Mailbox implements Scheduler, Runnable {
+
+        // Activation List: only holds the messages which are yet to be processed
+        private final Queue<Runnable> messages = new ConcurrentLinkedQueue<>();
+
+        // Set while the mailbox is queued for, or being processed by, a worker
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        @Override
+        public void enqueue(Runnable message) {
+            if (isClosed()) {
+                throw new IllegalStateException("The scheduler has been closed!");
+            }
+            messages.offer(message);
+            if (!trySchedule() && messages.remove(message)) {
+                // Closed in the meantime and no worker is around to pick the message up
+                throw new IllegalStateException("The scheduler has been closed!");
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                // Once closed, the worker drains the mailbox, there is no one else to take over
+                Runnable message;
+                for (int i = 0; (i < throughput || isClosed()) && (message = messages.poll()) != null; i++) {
+                    message.run();
+                }
+            } finally {
+                scheduled.set(false);
+                // Messages might have arrived in the meantime
+                if (!messages.isEmpty() && !trySchedule() && scheduled.compareAndSet(false, true)) {
+                    run();
+                }
+            }
+        }
+
+        // Hands the mailbox over to a worker, unless it has already been handed over
+        private boolean trySchedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    workers.execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class WorkerFactory implements ThreadFactory {
+
+        private final int poolId = POOL_COUNT.incrementAndGet();
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, "shared-scheduler-" + poolId + "-worker-" + threadCount.incrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Determines how the slots of a CounterArray are laid out in memory:
+ *
+ * - PACKED: slot after slot, eight of them share a cache line. The smallest footprint,
+ *   but the writers of neighbouring keys keep stealing the line from each other.
+ * - SPREAD: packed as well, but consecutive keys are dealt out over different cache lines.
+ *   Helps when the hot keys are next to each other (ids handed out in sequence), costs nothing extra.
+ * - PADDED: each slot owns a cache line. No false sharing at all, eight times the memory.
+ */
+public enum SlotLayout {
+    PACKED, SPREAD, PADDED
+}
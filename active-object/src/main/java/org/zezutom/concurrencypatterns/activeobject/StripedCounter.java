@@ -0,0 +1,387 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Implements the org.zezutom.concurrencypatterns.activeobject.Counter for write-heavy workloads.
+ * Instead of funneling all of the updates through a single point, the value is spread over a set of cells:
+ *
+ * - Uncontended updates go straight to the base cell
+ * - Once a thread runs into contention, the updates are striped over a table of cells
+ * - Each thread picks its cell by a probe hash, a thread which keeps colliding moves on to another cell
+ * - The table expands on contention, up to the number of available processors
+ * - Every cell is padded, so that the neighbouring cells never share a cache line (no false sharing)
+ * - get() sums all of the cells
+ *
+ * Weaker guarantees: the updates themselves are atomic and none of them ever gets lost. However, the values
+ * returned by the incrementAndGet, getAndIncrement, etc. are calculated from a sum taken right after the update.
+ * They reflect the update of the calling thread, but they can also include concurrent updates of other threads.
+ * In other words, these values are neither unique nor linearizable, they must not be used as sequence numbers.
+ * The same applies to the intermediate results of applyBatch, while the batch itself is applied as a single addition.
+ * Use org.zezutom.concurrencypatterns.activeobject.ThreadSafeCounter when exact return values matter.
+ *
+ * There is no single value to compare against, hence compareAndSet and updateAndGet are serialized:
+ * they take the table guard, lock every cell by swapping in a sentinel, sum the cells and either put the values back
+ * or rebase the counter (the new value goes to the base, the other cells are zeroed). Writers running into a locked
+ * cell retry until it is unlocked. These are the slow path, meant for occasional resets rather than for hot loops.
+ * The sentinel (Long.MIN_VALUE) is never stored as a value, an addition which would make a cell hold it goes elsewhere.
+ */
+public class StripedCounter implements Counter {
+
+    // The table never grows beyond the number of processors, as there could hardly be more contention
+    private static final int MAX_CELLS = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+    // A cell being locked by compareAndSet or updateAndGet, never a value of its own
+    private static final long LOCKED = Long.MIN_VALUE;
+
+    // Seeds probe hashes of the threads
+    private static final AtomicInteger PROBE_SEED = new AtomicInteger();
+
+    // Each thread keeps a probe hash of its own, which determines the cell the thread updates
+    private static final ThreadLocal<int[]> PROBE = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            int seed = PROBE_SEED.addAndGet(0x9e3779b9);
+            return new int[] {(seed == 0) ? 1 : seed};
+        }
+    };
+
+    // Takes all of the updates until the first contention
+    private final Cell base;
+
+    // Striped cells, the table is lazily initialized on contention
+    private volatile Cell[] cells;
+
+    // Guards initialization and expansion of the cell table
+    private final AtomicBoolean cellsBusy = new AtomicBoolean();
+
+    public StripedCounter(long value) {
+        if (value == LOCKED) {
+            // Spread over two cells, neither of them holds the sentinel
+            base = new Cell(value + 1);
+            cells = new Cell[] {new Cell(-1), null};
+        } else {
+            base = new Cell(value);
+        }
+    }
+
+    @Override
+    public long get() {
+        while (true) {
+            long sum = base.value;
+            boolean locked = sum == LOCKED;
+            Cell[] cs = cells;
+            if (cs != null) {
+                for (Cell cell : cs) {
+                    if (cell != null) {
+                        long v = cell.value;
+                        locked |= v == LOCKED;
+                        sum += v;
+                    }
+                }
+            }
+            if (!locked) {
+                return sum;
+            }
+            Thread.yield();     // a compareAndSet or updateAndGet is in progress
+        }
+    }
+
+    @Override
+    public long incrementAndGet() {
+        add(1);
+        return get();
+    }
+
+    @Override
+    public long getAndIncrement() {
+        add(1);
+        return get() - 1;
+    }
+
+    @Override
+    public long decrementAndGet() {
+        add(-1);
+        return get();
+    }
+
+    @Override
+    public long getAndDecrement() {
+        add(-1);
+        return get() + 1;
+    }
+
+    @Override
+    public long addAndGet(long delta) {
+        add(delta);
+        return get();
+    }
+
+    @Override
+    public long getAndAdd(long delta) {
+        add(delta);
+        return get() - delta;
+    }
+
+    /**
+     * Serialized, see the class documentation
+     */
+    @Override
+    public boolean compareAndSet(long expect, long update) {
+        long[] values = lockAll();
+        if (sum(values) != expect) {
+            unlockAll(values);
+            return false;
+        }
+        rebase(update);
+        return true;
+    }
+
+    /**
+     * Serialized, see the class documentation
+     */
+    @Override
+    public long updateAndGet(UpdateFunction function) {
+        long[] values = lockAll();
+        long update;
+        try {
+            update = function.apply(sum(values));
+        } catch (RuntimeException e) {
+            unlockAll(values);
+            throw e;
+        }
+        rebase(update);
+        return update;
+    }
+
+    @Override
+    public long[] applyBatch(long[] deltas) {
+        long total = 0;
+        for (long delta : deltas) {
+            total += delta;
+        }
+        add(total);
+
+        // Estimates the intermediate results, see the class documentation
+        long[] results = new long[deltas.length];
+        long value = get() - total;
+        for (int i = 0; i < deltas.length; i++) {
+            results[i] = value += deltas[i];
+        }
+        return results;
+    }
+
+    private void add(long x) {
+        if (x == LOCKED) {
+            // The sentinel must never be stored, not even as a fresh cell
+            add(x + 1);
+            add(-1);
+            return;
+        }
+        Cell[] cs = cells;
+        if (cs == null && base.add(base.value, x)) {
+            return; // uncontended
+        }
+        addToCell(x);
+    }
+
+    // Keeps looking for a cell until the update succeeds, expands the table if collisions persist
+    private void addToCell(long x) {
+        int[] probe = PROBE.get();
+        boolean collided = false;
+        while (true) {
+            Cell[] cs = cells;
+            if (cs == null) {
+                initCells();
+                continue;
+            }
+
+            int index = probe[0] & (cs.length - 1);
+            Cell cell = cs[index];
+            if (cell == null) {
+                installCell(index, x);
+                return;
+            }
+
+            long v = cell.value;
+            if (v == LOCKED) {
+                Thread.yield();     // a compareAndSet or updateAndGet is in progress
+                continue;
+            }
+            if (cell.add(v, x)) {
+                return;
+            }
+
+            if (cs.length < MAX_CELLS && collided) {
+                expandCells(cs);
+                collided = false;
+            } else {
+                collided = true;
+            }
+            probe[0] = rehash(probe[0]);
+        }
+    }
+
+    private void initCells() {
+        if (cells == null && cellsBusy.compareAndSet(false, true)) {
+            try {
+                if (cells == null) {
+                    cells = new Cell[2];
+                }
+            } finally {
+                cellsBusy.set(false);
+            }
+        } else {
+            Thread.yield(); // someone else is on it
+        }
+    }
+
+    private void installCell(int index, long x) {
+        Cell cell = new Cell(x);
+        while (true) {
+            if (cellsBusy.compareAndSet(false, true)) {
+                try {
+                    Cell[] cs = cells;
+                    index &= cs.length - 1;
+                    if (cs[index] == null) {
+                        cs[index] = cell;
+                        return;
+                    }
+                } finally {
+                    cellsBusy.set(false);
+                }
+                // The slot was taken in the meantime, add to the existing cell then
+                Cell existing = cells[index];
+                if (existing.add(existing.value, x)) {
+                    return;
+                }
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    private void expandCells(Cell[] cs) {
+        if (cellsBusy.compareAndSet(false, true)) {
+            try {
+                if (cells == cs) {
+                    Cell[] expanded = new Cell[cs.length << 1];
+                    System.arraycopy(cs, 0, expanded, 0, cs.length);
+                    cells = expanded;
+                }
+            } finally {
+                cellsBusy.set(false);
+            }
+        }
+    }
+
+    // Takes the table guard and locks every cell, returns the values taken out: the base first, then the table
+    private long[] lockAll() {
+        while (!cellsBusy.compareAndSet(false, true)) {
+            Thread.yield();
+        }
+        Cell[] cs = cells;
+        long[] values = new long[(cs == null) ? 1 : cs.length + 1];
+        values[0] = base.lock();
+        for (int i = 1; i < values.length; i++) {
+            Cell cell = cs[i - 1];
+            if (cell != null) {
+                values[i] = cell.lock();
+            }
+        }
+        return values;
+    }
+
+    // Puts the values back and releases the table guard
+    private void unlockAll(long[] values) {
+        try {
+            base.value = values[0];
+            Cell[] cs = cells;
+            for (int i = 1; i < values.length; i++) {
+                if (cs[i - 1] != null) {
+                    cs[i - 1].value = values[i];
+                }
+            }
+        } finally {
+            cellsBusy.set(false);
+        }
+    }
+
+    // The new value goes to the base, the other cells are zeroed. Releases the table guard.
+    private void rebase(long value) {
+        try {
+            Cell[] cs = cells;
+            if (cs != null) {
+                for (Cell cell : cs) {
+                    if (cell != null) {
+                        cell.value = 0;
+                    }
+                }
+            }
+            if (value == LOCKED) {
+                // Spread over two cells, neither of them holds the sentinel
+                if (cs == null) {
+                    cells = cs = new Cell[2];
+                }
+                if (cs[0] == null) {
+                    cs[0] = new Cell(-1);
+                } else {
+                    cs[0].value = -1;
+                }
+                value++;
+            }
+            base.value = value;
+        } finally {
+            cellsBusy.set(false);
+        }
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    // Marsaglia xor-shift, moves the thread to a different cell
+    private static int rehash(int probe) {
+        probe ^= probe << 13;
+        probe ^= probe >>> 17;
+        probe ^= probe << 5;
+        return probe;
+    }
+
+    // A padded cell, the padding keeps the value on a cache line of its own
+    private static class Cell {
+
+        private static final AtomicLongFieldUpdater<Cell> VALUE = AtomicLongFieldUpdater.newUpdater(Cell.class, "value");
+
+        @SuppressWarnings("unused")
+        private long p0, p1, p2, p3, p4, p5, p6;
+
+        private volatile long value;
+
+        @SuppressWarnings("unused")
+        private long q0, q1, q2, q3, q4, q5, q6;
+
+        private Cell(long value) {
+            this.value = value;
+        }
+
+        // Fails if the cell is locked, or if the result would be mistaken for the lock
+        private boolean add(long expect, long x) {
+            long update = expect + x;
+            return expect != LOCKED && update != LOCKED && VALUE.compareAndSet(this, expect, update);
+        }
+
+        // Only called while holding the table guard, hence nobody else is locking the cell
+        private long lock() {
+            return VALUE.getAndSet(this, LOCKED);
+        }
+    }
+}
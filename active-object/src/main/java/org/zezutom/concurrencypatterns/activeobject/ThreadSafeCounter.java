@@ -1,6 +1,10 @@
 package org.zezutom.concurrencypatterns.activeobject;
 
-import java.util.concurrent.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * @author Tomas Zezula
@@ -18,113 +22,392 @@ import java.util.concurrent.*;
  * - Messages are atomic one to each other, because they are processed sequentially
  * - Private data are accessed from the private thread
  * - Since there is not a 'shared' state, there is no need for additional synchronization either
+ * - Each message carries its own callback, so a client only ever receives the result of its own request
+ * - Clients which don't want to block can use the asynchronous view of the counter, see async()
+ * - Messages can either be handed over to the executor one by one, or drained and applied in batches
+ *   (see org.zezutom.concurrencypatterns.activeobject.SchedulingMode)
+ *
+ * The blocking calls are encoded as an opcode plus a long operand. Each client thread reuses a message
+ * of its own and receives the result as a primitive long. Along with a ring buffer as the activation list
+ * and the batched scheduling mode, the blocking calls create no garbage at all.
+ *
+ * The private thread publishes the latest value after each message. With ReadMode.PUBLISHED the get()
+ * reads the published value directly, so that reads don't compete with writes for the scheduler.
  */
 public class ThreadSafeCounter implements Counter {
 
+    // Operation codes
+    private static final int GET = 0;
+    private static final int ADD_AND_GET = 1;
+    private static final int GET_AND_ADD = 2;
+    private static final int COMPARE_AND_SET = 3;
+    private static final int UPDATE_AND_GET = 4;
+    private static final int APPLY_BATCH = 5;
+
+    private static final AtomicLongFieldUpdater<ThreadSafeCounter> PUBLISHED =
+            AtomicLongFieldUpdater.newUpdater(ThreadSafeCounter.class, "published");
+
     // The internal state, subject to race conditions.
     private long value;
 
-    // Activation List: incoming requests (tasks) are put into a queue
-    private BlockingQueue<Callable<Long>> taskQueue = new LinkedBlockingQueue<>();
+    // The latest value, as published by the private thread after each message
+    private volatile long published;
+
+    private final ReadMode readMode;
 
-    // Callback: provides access to the calculated results (incrementAndGet, etc.)
-    private BlockingQueue<Long> resultQueue = new LinkedBlockingQueue<>();
+    // Scheduler: owns the private thread along with the activation list of incoming requests (tasks).
+    // Callback: a task either is a message waking up the client, or it yields no result at all (fire-and-forget).
+    private final Scheduler scheduler;
+
+    // Each client thread keeps reusing a message of its own
+    private final ThreadLocal<Message> messages = new ThreadLocal<Message>() {
+        @Override
+        protected Message initialValue() {
+            return new Message(Thread.currentThread());
+        }
+    };
+
+    // Fire-and-forget messages carry no result, hence a single instance of each will do
+    private final Runnable increment = new Runnable() {
+        @Override
+        public void run() {
+            value++;
+            publish();
+        }
+    };
+
+    private final Runnable decrement = new Runnable() {
+        @Override
+        public void run() {
+            value--;
+            publish();
+        }
+    };
+
+    // Proxy: the non-blocking view of the counter
+    private final AsyncCounter async = new AsyncProxy();
 
     // Scheduler: a dedicated thread created and started when the counter gets instantiated
     public ThreadSafeCounter(long value) {
+        this(value, SchedulerOptions.defaults());
+    }
+
+    public ThreadSafeCounter(long value, SchedulingMode mode) {
+        this(value, SchedulerOptions.defaults().withMode(mode));
+    }
+
+    public ThreadSafeCounter(long value, SchedulerOptions options) {
+        this(value, options, ReadMode.STRICT);
+    }
+
+    public ThreadSafeCounter(long value, SchedulerOptions options, ReadMode readMode) {
+        this(value, new DedicatedScheduler(options), readMode);
+    }
+
+    // Scheduler: provided by the client, e.g. a mailbox of a shared scheduler
+    public ThreadSafeCounter(long value, Scheduler scheduler) {
+        this(value, scheduler, ReadMode.STRICT);
+    }
+
+    public ThreadSafeCounter(long value, Scheduler scheduler, ReadMode readMode) {
+        if (scheduler == null) {
+            throw new IllegalArgumentException("The scheduler is required!");
+        }
+        if (readMode == null) {
+            throw new IllegalArgumentException("The read mode is required!");
+        }
         this.value = value;
+        this.published = value;
+        this.scheduler = scheduler;
+        this.readMode = readMode;
+    }
 
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                // This is the actual task scheduler. It only allows for a single task at a time.
-                ExecutorService executorService = Executors.newSingleThreadExecutor();
-                try {
-                    // busy waiting
-                    while (true) {
-                        try {
-                            // At some point in the future the counter's new value will be available
-                            Future<Long> future = executorService.submit(taskQueue.take());
-                            while (!future.isDone())
-                                ; // wait until the results are ready
-                            resultQueue.put(future.get());
-                        } catch (InterruptedException | ExecutionException  e) {
-                            throw new RuntimeException("Task execution was failed!");
-                        }
-                    }
-                }
-                finally {
-                    executorService.shutdown();
-                }
-            }
-        }).start();
+    /**
+     * Provides a non-blocking view of this counter. The view shares the state and the scheduler with the counter.
+     * @return the asynchronous proxy
+     */
+    public AsyncCounter async() {
+        return async;
     }
 
     @Override
     public long get() {
-        return enqueueTask(new Callable<Long>() {
-            @Override
-            public Long call() throws Exception {
-                return value;
-            }
-        });
+        if (readMode == ReadMode.PUBLISHED) {
+            return published;
+        }
+        return execute(GET, 0);
     }
 
     @Override
     public long incrementAndGet() {
-        return enqueueTask(new Callable<Long>() {
-            @Override
-            public Long call() throws Exception {
-                return ++value;
-            }
-        });
+        return execute(ADD_AND_GET, 1);
     }
 
     @Override
     public long getAndIncrement() {
-        return enqueueTask(new Callable<Long>() {
-            @Override
-            public Long call() throws Exception {
-                return value++;
-            }
-        });
+        return execute(GET_AND_ADD, 1);
     }
 
     @Override
     public long decrementAndGet() {
-        return enqueueTask(new Callable<Long>() {
-            @Override
-            public Long call() throws Exception {
-                return --value;
-            }
-        });
+        return execute(ADD_AND_GET, -1);
     }
 
     @Override
     public long getAndDecrement() {
-        return enqueueTask(new Callable<Long>() {
+        return execute(GET_AND_ADD, -1);
+    }
+
+    @Override
+    public long addAndGet(long delta) {
+        return execute(ADD_AND_GET, delta);
+    }
+
+    @Override
+    public long getAndAdd(long delta) {
+        return execute(GET_AND_ADD, delta);
+    }
+
+    @Override
+    public boolean compareAndSet(long expect, long update) {
+        Message message = messages.get();
+        message.prepare(COMPARE_AND_SET, expect);
+        message.update = update;
+        return dispatch(message) != 0;
+    }
+
+    @Override
+    public long updateAndGet(UpdateFunction function) {
+        if (function == null) {
+            throw new IllegalArgumentException("The update function is required!");
+        }
+        Message message = messages.get();
+        message.prepare(UPDATE_AND_GET, 0);
+        message.function = function;
+        return dispatch(message);
+    }
+
+    @Override
+    public long[] applyBatch(long[] deltas) {
+        // The whole batch is a single message, i.e. a single round trip
+        long[] results = new long[deltas.length];
+        Message message = messages.get();
+        message.prepare(APPLY_BATCH, 0);
+        message.deltas = deltas;
+        message.results = results;
+        dispatch(message);
+        return results;
+    }
+
+    // Only ever called on the private thread. An ordered (release) store is enough, the published
+    // value only needs to become visible eventually and not later than the result of the message.
+    private void publish() {
+        PUBLISHED.lazySet(this, value);
+    }
+
+    // Only ever called on the private thread
+    private long apply(int opcode, long operand) {
+        switch (opcode) {
+            case GET: return value;
+            case ADD_AND_GET: return value += operand;
+            case GET_AND_ADD: {
+                long previous = value;
+                value += operand;
+                return previous;
+            }
+            default: throw new IllegalStateException("Unknown operation: " + opcode);
+        }
+    }
+
+    // Proxy: allows the clients to submit new tasks
+    private void enqueueTask(Runnable task) {
+        scheduler.enqueue(task);
+    }
+
+    private Future<Long> enqueueTask(final int opcode, final long operand) {
+        FutureTask<Long> future = new FutureTask<>(new Callable<Long>() {
             @Override
             public Long call() throws Exception {
-                return value--;
+                long result = apply(opcode, operand);
+                publish();
+                return result;
             }
         });
+        enqueueTask(future);
+        return future;
     }
 
-    // Proxy: allows the clients to submit new tasks
-    private long enqueueTask(Callable<Long> task) {
-        Long result;
-        try {
-            // Put the task into the queue
-            taskQueue.put(task);
-
-            // Meanwhile, the client is blocked until the result is ready
-            while (true) {
-                result = resultQueue.poll(500, TimeUnit.MILLISECONDS);
-                if (result != null) break;
+    // The client is blocked until its own result is ready
+    private long execute(int opcode, long operand) {
+        Message message = messages.get();
+        message.prepare(opcode, operand);
+        return dispatch(message);
+    }
+
+    private long dispatch(Message message) {
+        enqueueTask(message);
+        return message.awaitResult();
+    }
+
+    // A reusable request, it wakes up its client once the result is ready
+    private class Message implements Runnable, Rejectable {
+
+        private final Thread client;
+
+        private int opcode;
+
+        private long operand;
+
+        // Extra arguments of the less common operations
+        private long update;
+
+        private UpdateFunction function;
+
+        private long[] deltas;
+
+        private long[] results;
+
+        private long result;
+
+        // Raised by the update function, rethrown to the client
+        private RuntimeException failure;
+
+        // Written last by the private thread, hence it publishes the result
+        private volatile boolean done;
+
+        private Message(Thread client) {
+            this.client = client;
+        }
+
+        private void prepare(int opcode, long operand) {
+            this.opcode = opcode;
+            this.operand = operand;
+            this.failure = null;
+            this.done = false;
+        }
+
+        @Override
+        public void run() {
+            try {
+                switch (opcode) {
+                    case COMPARE_AND_SET:
+                        result = (value == operand) ? 1 : 0;
+                        if (result != 0) {
+                            value = update;
+                        }
+                        break;
+                    case UPDATE_AND_GET:
+                        result = value = function.apply(value);
+                        break;
+                    case APPLY_BATCH:
+                        for (int i = 0; i < deltas.length; i++) {
+                            results[i] = value += deltas[i];
+                        }
+                        break;
+                    default:
+                        result = apply(opcode, operand);
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                publish();
+
+                // Don't hold on to the client's objects
+                function = null;
+                deltas = null;
+                results = null;
+                done = true;
+                LockSupport.unpark(client);
+            }
+        }
+
+        // Dropped from a full activation list, the client is woken up without a result
+        @Override
+        public void reject(RuntimeException cause) {
+            failure = cause;
+            function = null;
+            deltas = null;
+            results = null;
+            done = true;
+            LockSupport.unpark(client);
+        }
+
+        // The request is already on its way, it can't be taken back. Hence the client keeps waiting
+        // when interrupted, the interruption is then passed on.
+        private long awaitResult() {
+            boolean interrupted = false;
+            while (!done) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                client.interrupt();
+            }
+            if (failure != null) {
+                throw failure;
             }
             return result;
-        } catch (InterruptedException e) {
-            throw new RuntimeException("Task scheduling was interrupted!");
+        }
+    }
+
+    private class AsyncProxy implements AsyncCounter {
+
+        @Override
+        public Future<Long> get() {
+            return enqueueTask(GET, 0);
+        }
+
+        @Override
+        public Future<Long> incrementAndGet() {
+            return enqueueTask(ADD_AND_GET, 1);
+        }
+
+        @Override
+        public Future<Long> getAndIncrement() {
+            return enqueueTask(GET_AND_ADD, 1);
+        }
+
+        @Override
+        public Future<Long> decrementAndGet() {
+            return enqueueTask(ADD_AND_GET, -1);
+        }
+
+        @Override
+        public Future<Long> getAndDecrement() {
+            return enqueueTask(GET_AND_ADD, -1);
+        }
+
+        @Override
+        public Future<Long> addAndGet(long delta) {
+            return enqueueTask(ADD_AND_GET, delta);
+        }
+
+        @Override
+        public Future<Long> getAndAdd(long delta) {
+            return enqueueTask(GET_AND_ADD, delta);
+        }
+
+        @Override
+        public void increment() {
+            enqueueTask(increment);
+        }
+
+        @Override
+        public void decrement() {
+            enqueueTask(decrement);
+        }
+
+        @Override
+        public void add(final long delta) {
+            enqueueTask(new Runnable() {
+                @Override
+                public void run() {
+                    value += delta;
+                    publish();
+                }
+            });
         }
     }
 }
@@ -38,4 +38,39 @@ public class ThreadUnsafeCounter implements Counter {
     public long getAndDecrement() {
         return value--;
     }
+
+    @Override
+    public long addAndGet(long delta) {
+        return value += delta;
+    }
+
+    @Override
+    public long getAndAdd(long delta) {
+        long previous = value;
+        value += delta;
+        return previous;
+    }
+
+    @Override
+    public boolean compareAndSet(long expect, long update) {
+        if (value != expect) {
+            return false;
+        }
+        value = update;
+        return true;
+    }
+
+    @Override
+    public long updateAndGet(UpdateFunction function) {
+        return value = function.apply(value);
+    }
+
+    @Override
+    public long[] applyBatch(long[] deltas) {
+        long[] results = new long[deltas.length];
+        for (int i = 0; i < deltas.length; i++) {
+            results[i] = value += deltas[i];
+        }
+        return results;
+    }
 }
@@ -0,0 +1,19 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Tells the time to the time-bound counters. Tests replace it, so that they don't have to wait.
+ */
+public interface TimeSource {
+
+    // The wall clock
+    TimeSource SYSTEM = new TimeSource() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    long currentTimeMillis();
+}
@@ -0,0 +1,16 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Calculates a new value of a counter from the current one, see Counter.updateAndGet.
+ * The function should be side-effect free.
+ */
+public interface UpdateFunction {
+
+    /**
+     * @param value the current value
+     * @return the new value
+     */
+    long apply(long value);
+}
@@ -0,0 +1,47 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Determines what a thread does while it has to wait on the org.zezutom.concurrencypatterns.activeobject.RingBuffer,
+ * i.e. the consumer waiting for requests or a producer waiting for space. The strategies trade CPU for latency.
+ */
+public enum WaitStrategy {
+
+    /**
+     * Busy spinning, the lowest latency at the cost of burning a CPU core
+     */
+    SPIN {
+        @Override
+        void backOff() {
+            // keep spinning
+        }
+    },
+
+    /**
+     * Gives other threads a chance to run in between the checks
+     */
+    YIELD {
+        @Override
+        void backOff() {
+            Thread.yield();
+        }
+    },
+
+    /**
+     * The waiting thread is parked, it costs no CPU at the expense of a wakeup latency
+     */
+    PARK {
+        @Override
+        void backOff() {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    };
+
+    // How long a producer parks before it checks for space again
+    private static final long PARK_NANOS = 1000L;
+
+    abstract void backOff();
+}
@@ -0,0 +1,144 @@
+package org.zezutom.concurrencypatterns.activeobject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Counts the events of the last few seconds, meant for rate limiting. The events are kept
+ * in a ring of per-second buckets, the oldest bucket being reused for the current second.
+ *
+ * - There is no timer thread, a bucket is rotated lazily by the first event of a new second.
+ * - Each bucket holds the second it belongs to along with its count, packed into a single long.
+ *   Hence the rotation and the increment are one and the same CAS and no event is ever lost in between.
+ * - Recording an event is lock-free and doesn't allocate anything.
+ *
+ * A bucket holds at most 2^32 - 1 events, any more leave it saturated. The current second is always part of the window, although
+ * it has only just begun, so that the rate is somewhat underestimated early in a second.
+ */
+public class WindowedCounter {
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private static final long MAX_DELTA = COUNT_MASK;
+
+    private final AtomicLongArray buckets;
+
+    private final int seconds;
+
+    private final TimeSource timeSource;
+
+    public WindowedCounter(int seconds) {
+        this(seconds, TimeSource.SYSTEM);
+    }
+
+    /**
+     * @param seconds    the longest window the counter can tell about, one bucket per second
+     * @param timeSource tells the current time
+     */
+    public WindowedCounter(int seconds, TimeSource timeSource) {
+        if (seconds < 1) {
+            throw new IllegalArgumentException("Invalid number of seconds: " + seconds);
+        }
+        if (timeSource == null) {
+            throw new IllegalArgumentException("The time source is required!");
+        }
+        this.seconds = seconds;
+        this.timeSource = timeSource;
+        this.buckets = new AtomicLongArray(seconds);
+        // Mark each bucket as belonging to a second outside of any window
+        for (int i = 0; i < seconds; i++) {
+            buckets.set(i, pack(-1, 0));
+        }
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    /**
+     * @param delta the number of the events, non-negative
+     */
+    public void add(long delta) {
+        if (delta < 0 || delta > MAX_DELTA) {
+            throw new IllegalArgumentException("Invalid delta: " + delta);
+        }
+        long second = currentSecond();
+        int index = index(second);
+        int epoch = (int) second;
+        while (true) {
+            long bucket = buckets.get(index);
+            int bucketEpoch = epoch(bucket);
+            // A stale bucket starts over, a late event (its bucket already belongs to a later second) is counted anyway.
+            // The count saturates rather than overflowing into the epoch.
+            long update = (epoch - bucketEpoch > 0)
+                    ? pack(epoch, delta)
+                    : pack(bucketEpoch, Math.min(count(bucket) + delta, COUNT_MASK));
+            if (buckets.compareAndSet(index, bucket, update)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param window  how far back to look, rounded up to whole seconds, including the current one
+     * @param unit    the unit of the window
+     * @return the number of the events within the window
+     */
+    public long countOver(long window, TimeUnit unit) {
+        int span = span(window, unit);
+        long second = currentSecond();
+        long count = 0;
+        for (int i = 0; i < span; i++) {
+            long bucket = buckets.get(index(second - i));
+            if (epoch(bucket) == (int) (second - i)) {
+                count += count(bucket);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param window  how far back to look, rounded up to whole seconds, including the current one
+     * @param unit    the unit of the window
+     * @return the average number of the events per second within the window
+     */
+    public double rateOver(long window, TimeUnit unit) {
+        return (double) countOver(window, unit) / span(window, unit);
+    }
+
+    public int getSeconds() {
+        return seconds;
+    }
+
+    private int span(long window, TimeUnit unit) {
+        long millis = unit.toMillis(window);
+        long span = (millis + 999) / 1000;
+        if (span < 1 || span > seconds) {
+            throw new IllegalArgumentException("The window must be between 1 and " + seconds + " seconds!");
+        }
+        return (int) span;
+    }
+
+    private long currentSecond() {
+        return timeSource.currentTimeMillis() / 1000;
+    }
+
+    private int index(long second) {
+        long index = second % seconds;
+        return (int) (index < 0 ? index + seconds : index);
+    }
+
+    private static long pack(int epoch, long count) {
+        return ((long) epoch << 32) | count;
+    }
+
+    private static int epoch(long bucket) {
+        return (int) (bucket >>> 32);
+    }
+
+    private static long count(long bucket) {
+        return bucket & COUNT_MASK;
+    }
+}
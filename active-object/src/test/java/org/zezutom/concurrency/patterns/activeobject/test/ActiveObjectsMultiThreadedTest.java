@@ -0,0 +1,26 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.BeforeClass;
+import org.zezutom.concurrencypatterns.activeobject.ActiveObjects;
+import org.zezutom.concurrencypatterns.activeobject.Counter;
+import org.zezutom.concurrencypatterns.activeobject.SchedulerOptions;
+import org.zezutom.concurrencypatterns.activeobject.SchedulingMode;
+import org.zezutom.concurrencypatterns.activeobject.ThreadUnsafeCounter;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves that org.zezutom.concurrencypatterns.activeobject.ActiveObjects turns the otherwise thread-unsafe
+ * org.zezutom.concurrencypatterns.activeobject.ThreadUnsafeCounter into a thread-safe active object.
+ */
+public class ActiveObjectsMultiThreadedTest extends ThreadSafeCounterMultiThreadedTest {
+
+    @BeforeClass
+    public static void init() {
+        ThreadSafeCounterMultiThreadedTest.init();
+
+        // Replaces the default counter with a generated active object
+        counter = ActiveObjects.create(Counter.class, new ThreadUnsafeCounter(INITIAL_VALUE),
+                SchedulerOptions.defaults().withMode(SchedulingMode.BATCHED));
+    }
+}
@@ -0,0 +1,69 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.ActiveObjects;
+import org.zezutom.concurrencypatterns.activeobject.Counter;
+import org.zezutom.concurrencypatterns.activeobject.SchedulerOptions;
+import org.zezutom.concurrencypatterns.activeobject.ThreadUnsafeCounter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves the core functionality of the generated proxies, all tests should pass.
+ */
+public class ActiveObjectsSingleThreadedTest {
+
+    // The value the counter is initialized with
+    public static final long INITIAL_VALUE = 10L;
+
+    private Counter counter;
+
+    @Before
+    public void init() {
+        counter = ActiveObjects.create(Counter.class, new ThreadUnsafeCounter(INITIAL_VALUE), SchedulerOptions.defaults());
+    }
+
+    @Test
+    public void get() {
+        assertEquals(INITIAL_VALUE, counter.get());
+    }
+
+    @Test
+    public void incrementAndGet() {
+        final long expected = INITIAL_VALUE + 1;
+        assertEquals(expected, counter.incrementAndGet());
+        assertEquals(expected, counter.get());
+    }
+
+    @Test
+    public void voidMethodsAreExecutedInOrder() {
+        List<String> servant = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        List<String> list = ActiveObjects.create(List.class, servant, SchedulerOptions.defaults());
+        list.add("one");
+        list.clear();   // fire-and-forget
+        list.add("two");
+        assertEquals(1, list.size());
+        assertEquals("two", list.get(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void servantExceptionsAreRethrown() {
+        @SuppressWarnings("unchecked")
+        List<String> list = ActiveObjects.create(List.class, new ArrayList<String>(), SchedulerOptions.defaults());
+        list.get(1);
+    }
+
+    @Test
+    public void proxyIdentity() {
+        assertTrue(counter.equals(counter));
+        assertEquals(System.identityHashCode(counter), counter.hashCode());
+    }
+}
@@ -0,0 +1,67 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.ThreadSafeCounter;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves that the fire-and-forget calls on the asynchronous view of the
+ * org.zezutom.concurrencypatterns.activeobject.ThreadSafeCounter never get lost under race conditions.
+ */
+public class AsyncCounterMultiThreadedTest {
+
+    // The value the counter is initialized with
+    public static final long INITIAL_VALUE = 10L;
+
+    // Concurrent counter threads: per-method commands
+    private static Runnable incrementCommand;
+    private static Runnable decrementCommand;
+
+    // Multi-threaded test executor
+    private static TestExecutor testExecutor;
+
+    // An instance of the tested class. Being 'volatile' indicates it's going to be used by multiple threads
+    private static volatile ThreadSafeCounter counter;
+
+    // The value of the counter prior to any testing
+    private long startValue;
+
+    @BeforeClass
+    public static void init() {
+        counter = new ThreadSafeCounter(INITIAL_VALUE);
+        testExecutor = TestExecutor.get();
+
+        incrementCommand =  new Runnable() {@Override public void run() { counter.async().increment(); } };
+        decrementCommand =  new Runnable() {@Override public void run() { counter.async().decrement(); } };
+    }
+
+    @Before
+    public void setUp() {
+        startValue = counter.get();
+    }
+
+    @Test
+    public void increment() {
+        testExecutor.runTest(incrementCommand);
+        // The blocking get() is queued behind all of the increments
+        assertEquals(startValue + TestExecutor.MAX_ITERATIONS * TestExecutor.DEFAULT_CONCURRENT_THREADS, counter.get());
+    }
+
+    @Test
+    public void decrement() {
+        testExecutor.runTest(decrementCommand);
+        assertEquals(startValue - TestExecutor.MAX_ITERATIONS * TestExecutor.DEFAULT_CONCURRENT_THREADS, counter.get());
+    }
+
+    @Test
+    public void runAll() {
+        testExecutor.runTest(incrementCommand, decrementCommand);
+        assertEquals(startValue, counter.get());
+    }
+}
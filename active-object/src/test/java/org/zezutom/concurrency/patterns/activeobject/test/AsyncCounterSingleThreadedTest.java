@@ -0,0 +1,91 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.AsyncCounter;
+import org.zezutom.concurrencypatterns.activeobject.ThreadSafeCounter;
+
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves the core functionality of the asynchronous view, all tests should pass.
+ */
+public class AsyncCounterSingleThreadedTest {
+
+    // The value the counter is initialized with
+    public static final long INITIAL_VALUE = 10L;
+
+    private AsyncCounter counter;
+
+    @Before
+    public void init() {
+        counter = new ThreadSafeCounter(INITIAL_VALUE).async();
+    }
+
+    @Test
+    public void get() throws ExecutionException, InterruptedException {
+        assertEquals(INITIAL_VALUE, (long) counter.get().get());
+    }
+
+    @Test
+    public void incrementAndGet() throws ExecutionException, InterruptedException {
+        final long expected = INITIAL_VALUE + 1;
+        assertEquals(expected, (long) counter.incrementAndGet().get());
+        assertEquals(expected, (long) counter.get().get());
+    }
+
+    @Test
+    public void getAndIncrement() throws ExecutionException, InterruptedException {
+        assertEquals(INITIAL_VALUE, (long) counter.getAndIncrement().get());
+        assertEquals(INITIAL_VALUE + 1, (long) counter.get().get());
+    }
+
+    @Test
+    public void decrementAndGet() throws ExecutionException, InterruptedException {
+        final long expected = INITIAL_VALUE - 1;
+        assertEquals(expected, (long) counter.decrementAndGet().get());
+        assertEquals(expected, (long) counter.get().get());
+    }
+
+    @Test
+    public void getAndDecrement() throws ExecutionException, InterruptedException {
+        assertEquals(INITIAL_VALUE, (long) counter.getAndDecrement().get());
+        assertEquals(INITIAL_VALUE - 1, (long) counter.get().get());
+    }
+
+    @Test
+    public void increment() throws ExecutionException, InterruptedException {
+        counter.increment();
+        // Messages are processed in order, hence the increment is visible to any subsequent request
+        assertEquals(INITIAL_VALUE + 1, (long) counter.get().get());
+    }
+
+    @Test
+    public void decrement() throws ExecutionException, InterruptedException {
+        counter.decrement();
+        assertEquals(INITIAL_VALUE - 1, (long) counter.get().get());
+    }
+
+    @Test
+    public void addAndGet() throws ExecutionException, InterruptedException {
+        final long expected = INITIAL_VALUE + 5;
+        assertEquals(expected, (long) counter.addAndGet(5).get());
+        assertEquals(expected, (long) counter.get().get());
+    }
+
+    @Test
+    public void getAndAdd() throws ExecutionException, InterruptedException {
+        assertEquals(INITIAL_VALUE, (long) counter.getAndAdd(-5).get());
+        assertEquals(INITIAL_VALUE - 5, (long) counter.get().get());
+    }
+
+    @Test
+    public void add() throws ExecutionException, InterruptedException {
+        counter.add(5);
+        assertEquals(INITIAL_VALUE + 5, (long) counter.get().get());
+    }
+}
@@ -0,0 +1,22 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.BeforeClass;
+import org.zezutom.concurrencypatterns.activeobject.SchedulingMode;
+import org.zezutom.concurrencypatterns.activeobject.ThreadSafeCounter;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Runs the very same checks as org.zezutom.concurrency.patterns.activeobject.test.ThreadSafeCounterMultiThreadedTest,
+ * this time against a counter whose scheduler drains and applies the pending requests in batches.
+ */
+public class BatchedThreadSafeCounterMultiThreadedTest extends ThreadSafeCounterMultiThreadedTest {
+
+    @BeforeClass
+    public static void init() {
+        ThreadSafeCounterMultiThreadedTest.init();
+
+        // Replaces the default counter with the batched one
+        counter = new ThreadSafeCounter(INITIAL_VALUE, SchedulingMode.BATCHED);
+    }
+}
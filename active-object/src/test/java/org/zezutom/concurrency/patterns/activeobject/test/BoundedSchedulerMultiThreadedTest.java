@@ -0,0 +1,148 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.After;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.ActivationListType;
+import org.zezutom.concurrencypatterns.activeobject.DedicatedScheduler;
+import org.zezutom.concurrencypatterns.activeobject.OverflowPolicy;
+import org.zezutom.concurrencypatterns.activeobject.SchedulerOptions;
+import org.zezutom.concurrencypatterns.activeobject.SchedulingMode;
+import org.zezutom.concurrencypatterns.activeobject.ThreadSafeCounter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Fills up a bounded activation list while the scheduler is busy, then checks that each
+ * of the overflow policies pushes back as promised and that the gauges tell about it.
+ */
+public class BoundedSchedulerMultiThreadedTest {
+
+    public static final int CAPACITY = 2;
+
+    // Keeps the scheduler busy, so that the activation list fills up
+    private final CountDownLatch gate = new CountDownLatch(1);
+
+    @After
+    public void cleanUp() {
+        gate.countDown();
+    }
+
+    @Test
+    public void failFastRejectsTheNewcomer() throws InterruptedException {
+        DedicatedScheduler scheduler = fill(OverflowPolicy.FAIL_FAST);
+        try {
+            scheduler.enqueue(noOp());
+            fail("The request should have been rejected!");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        assertEquals(1, scheduler.getRejectedCount());
+        assertEquals(CAPACITY, scheduler.getQueueDepth());
+    }
+
+    @Test
+    public void dropOldestNotifiesTheWaitingClient() throws InterruptedException {
+        final DedicatedScheduler scheduler = busy(SchedulerOptions.defaults().withCapacity(CAPACITY)
+                .withOverflowPolicy(OverflowPolicy.DROP_OLDEST));
+        final ThreadSafeCounter counter = new ThreadSafeCounter(0, scheduler);
+
+        // The oldest request comes from a blocked client, the second one is asynchronous
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Thread client = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    counter.incrementAndGet();
+                } catch (RuntimeException e) {
+                    failure.set(e);
+                }
+            }
+        });
+        client.start();
+        while (scheduler.getQueueDepth() < 1) {
+            Thread.yield();
+        }
+        Future<Long> dropped = counter.async().incrementAndGet();
+
+        scheduler.enqueue(noOp());
+        scheduler.enqueue(noOp());
+        client.join();
+
+        assertTrue(failure.get() instanceof RejectedExecutionException);
+        assertTrue(dropped.isCancelled());
+        assertEquals(2, scheduler.getRejectedCount());
+        assertEquals(CAPACITY, scheduler.getQueueDepth());
+
+        gate.countDown();
+        assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void blockWaitsForSpace() throws InterruptedException {
+        final DedicatedScheduler scheduler = fill(OverflowPolicy.BLOCK);
+        Thread client = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                scheduler.enqueue(noOp());
+            }
+        });
+        client.start();
+        Thread.sleep(50);
+        assertTrue("The client should be waiting!", client.isAlive());
+
+        gate.countDown();
+        client.join();
+        assertTrue(scheduler.getEnqueueWaitNanos() > 0);
+        assertEquals(0, scheduler.getRejectedCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ringBufferCantDropOldest() {
+        new DedicatedScheduler(SchedulerOptions.defaults()
+                .withActivationList(ActivationListType.RING_BUFFER)
+                .withOverflowPolicy(OverflowPolicy.DROP_OLDEST));
+    }
+
+    // A busy scheduler with a full activation list
+    private DedicatedScheduler fill(OverflowPolicy policy) throws InterruptedException {
+        DedicatedScheduler scheduler = busy(SchedulerOptions.defaults().withCapacity(CAPACITY)
+                .withOverflowPolicy(policy));
+        for (int i = 0; i < CAPACITY; i++) {
+            scheduler.enqueue(noOp());
+        }
+        return scheduler;
+    }
+
+    private DedicatedScheduler busy(SchedulerOptions options) throws InterruptedException {
+        DedicatedScheduler scheduler = new DedicatedScheduler(options.withMode(SchedulingMode.BATCHED));
+        final CountDownLatch started = new CountDownLatch(1);
+        scheduler.enqueue(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException("Execution interrupted!");
+                }
+            }
+        });
+        started.await();
+        return scheduler;
+    }
+
+    private static Runnable noOp() {
+        return new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.After;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.CounterArray;
+import org.zezutom.concurrencypatterns.activeobject.SlotLayout;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves that org.zezutom.concurrencypatterns.activeobject.CounterArray never loses an update,
+ * regardless of the slot layout and whether the threads hit the same or neighbouring slots.
+ */
+public class CounterArrayMultiThreadedTest {
+
+    // Deliberately small, so that the neighbouring keys share cache lines
+    public static final int LENGTH = 16;
+
+    private CounterArray counters;
+
+    @After
+    public void cleanUp() {
+        counters.close();
+    }
+
+    @Test
+    public void packed() {
+        runTest(SlotLayout.PACKED);
+    }
+
+    @Test
+    public void spread() {
+        runTest(SlotLayout.SPREAD);
+    }
+
+    @Test
+    public void padded() {
+        runTest(SlotLayout.PADDED);
+    }
+
+    private void runTest(SlotLayout layout) {
+        counters = new CounterArray(LENGTH, layout);
+        final CounterArray array = counters;
+
+        // Each call touches all of the slots, one of them twice
+        final AtomicInteger calls = new AtomicInteger();
+        TestExecutor.get().runTest(new Runnable() {
+            @Override
+            public void run() {
+                int hot = calls.getAndIncrement() % LENGTH;
+                array.incrementAndGet(hot);
+                for (int i = 0; i < LENGTH; i++) {
+                    array.getAndIncrement(i);
+                }
+            }
+        });
+
+        final int total = TestExecutor.MAX_ITERATIONS * TestExecutor.DEFAULT_CONCURRENT_THREADS;
+        long sum = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            sum += counters.get(i);
+        }
+        assertEquals((long) total * (LENGTH + 1), sum);
+        assertEquals(total / LENGTH + total, counters.get(0));
+    }
+}
@@ -0,0 +1,128 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.CounterArray;
+import org.zezutom.concurrencypatterns.activeobject.SlotLayout;
+import org.zezutom.concurrencypatterns.activeobject.UpdateFunction;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves the core functionality, all tests should pass.
+ */
+public class CounterArraySingleThreadedTest {
+
+    public static final int LENGTH = 100;
+
+    // The slot under test
+    public static final int INDEX = 42;
+
+    private CounterArray counters;
+
+    @Before
+    public void init() {
+        counters = new CounterArray(LENGTH);
+    }
+
+    @After
+    public void cleanUp() {
+        counters.close();
+    }
+
+    @Test
+    public void get() {
+        assertEquals(0, counters.get(INDEX));
+    }
+
+    @Test
+    public void incrementAndGet() {
+        assertEquals(1, counters.incrementAndGet(INDEX));
+        assertEquals(1, counters.get(INDEX));
+    }
+
+    @Test
+    public void getAndIncrement() {
+        assertEquals(0, counters.getAndIncrement(INDEX));
+        assertEquals(1, counters.get(INDEX));
+    }
+
+    @Test
+    public void decrementAndGet() {
+        assertEquals(-1, counters.decrementAndGet(INDEX));
+        assertEquals(-1, counters.get(INDEX));
+    }
+
+    @Test
+    public void getAndDecrement() {
+        assertEquals(0, counters.getAndDecrement(INDEX));
+        assertEquals(-1, counters.get(INDEX));
+    }
+
+    @Test
+    public void addAndGet() {
+        assertEquals(5, counters.addAndGet(INDEX, 5));
+        assertEquals(5, counters.get(INDEX));
+    }
+
+    @Test
+    public void getAndAdd() {
+        assertEquals(0, counters.getAndAdd(INDEX, 5));
+        assertEquals(5, counters.get(INDEX));
+    }
+
+    @Test
+    public void compareAndSet() {
+        assertFalse(counters.compareAndSet(INDEX, 1, 2));
+        assertTrue(counters.compareAndSet(INDEX, 0, 2));
+        assertEquals(2, counters.get(INDEX));
+    }
+
+    @Test
+    public void updateAndGet() {
+        counters.addAndGet(INDEX, 3);
+        assertEquals(9, counters.updateAndGet(INDEX, new UpdateFunction() {
+            @Override
+            public long apply(long value) {
+                return value * value;
+            }
+        }));
+    }
+
+    @Test
+    public void applyBatch() {
+        assertArrayEquals(new long[] {1, 0, 2, 3}, counters.applyBatch(INDEX, new long[] {1, -1, 2, 1}));
+        assertEquals(3, counters.get(INDEX));
+    }
+
+    @Test
+    public void slotsAreIndependentInEachLayout() {
+        for (SlotLayout layout : SlotLayout.values()) {
+            CounterArray array = new CounterArray(LENGTH, layout);
+            try {
+                for (int i = 0; i < LENGTH; i++) {
+                    array.addAndGet(i, i);
+                }
+                for (int i = 0; i < LENGTH; i++) {
+                    assertEquals(layout + " at " + i, i, array.get(i));
+                }
+            } finally {
+                array.close();
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void indexOutOfBounds() {
+        counters.incrementAndGet(LENGTH);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedArrayRefusesAccess() {
+        counters.close();
+        counters.get(INDEX);
+    }
+}
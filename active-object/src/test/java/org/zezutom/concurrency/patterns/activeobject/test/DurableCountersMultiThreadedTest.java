@@ -0,0 +1,60 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.Counter;
+import org.zezutom.concurrencypatterns.activeobject.DurableCounters;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves that the counters of org.zezutom.concurrencypatterns.activeobject.DurableCounters
+ * never lose an update under race conditions, while being flushed in the background.
+ */
+public class DurableCountersMultiThreadedTest {
+
+    public static final int ITERATIONS = 1000;
+
+    private File path;
+
+    @Before
+    public void init() throws IOException {
+        path = File.createTempFile("counters", ".bin");
+        path.delete();
+    }
+
+    @After
+    public void cleanUp() {
+        path.delete();
+    }
+
+    @Test
+    public void noUpdateIsLost() throws IOException {
+        final DurableCounters counters = new DurableCounters(path, 2, 100, 10);
+        final Counter first = counters.counter(0);
+        TestExecutor.get(ITERATIONS, TestExecutor.DEFAULT_CONCURRENT_THREADS).runTest(new Runnable() {
+            @Override
+            public void run() {
+                first.incrementAndGet();
+                counters.addAndGet(1, 2);   // no view, straight to the private thread
+            }
+        });
+        counters.close();
+
+        final int expected = ITERATIONS * TestExecutor.DEFAULT_CONCURRENT_THREADS;
+        DurableCounters recovered = new DurableCounters(path, 2);
+        try {
+            assertEquals(expected, recovered.counter(0).get());
+            assertEquals(2 * expected, recovered.counter(1).get());
+        } finally {
+            recovered.close();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.Counter;
+import org.zezutom.concurrencypatterns.activeobject.DurableCounters;
+import org.zezutom.concurrencypatterns.activeobject.UpdateFunction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves that the counters of org.zezutom.concurrencypatterns.activeobject.DurableCounters
+ * survive a restart and that an unflushed file is recognized as such.
+ */
+public class DurableCountersSingleThreadedTest {
+
+    public static final int LENGTH = 1000;
+
+    // The header of the file: the sequence, followed by the committed one
+    public static final int SEQUENCE_OFFSET = 16;
+
+    private File path;
+
+    @Before
+    public void init() throws IOException {
+        path = File.createTempFile("counters", ".bin");
+        path.delete();
+    }
+
+    @After
+    public void cleanUp() {
+        path.delete();
+    }
+
+    @Test
+    public void newFileStartsAtZero() throws IOException {
+        DurableCounters counters = new DurableCounters(path, LENGTH);
+        try {
+            assertTrue(counters.isConsistent());
+            assertEquals(0, counters.counter(LENGTH - 1).get());
+        } finally {
+            counters.close();
+        }
+    }
+
+    @Test
+    public void valuesSurviveRestart() throws IOException {
+        DurableCounters counters = new DurableCounters(path, LENGTH);
+        counters.counter(0).incrementAndGet();
+        counters.counter(LENGTH - 1).addAndGet(42);
+        counters.close();
+
+        DurableCounters recovered = new DurableCounters(path, LENGTH);
+        try {
+            assertTrue(recovered.isConsistent());
+            assertEquals(1, recovered.counter(0).get());
+            assertEquals(42, recovered.counter(LENGTH - 1).get());
+            assertEquals(0, recovered.counter(1).get());
+        } finally {
+            recovered.close();
+        }
+    }
+
+    @Test
+    public void unflushedUpdatesAreDetected() throws IOException {
+        DurableCounters counters = new DurableCounters(path, LENGTH);
+        try {
+            counters.counter(0).incrementAndGet();
+
+            // Opened as if the first instance had crashed before flushing
+            DurableCounters crashed = new DurableCounters(path, LENGTH);
+            assertFalse(crashed.isConsistent());
+            crashed.close();
+        } finally {
+            counters.close();
+        }
+    }
+
+    @Test
+    public void sequenceIsWrittenAhead() throws IOException {
+        DurableCounters counters = new DurableCounters(path, LENGTH);
+        try {
+            counters.counter(0).incrementAndGet();
+
+            // The batch is open and unflushed, yet the file already tells so
+            RandomAccessFile file = new RandomAccessFile(path, "r");
+            try {
+                file.seek(SEQUENCE_OFFSET);
+                long sequence = file.readLong();
+                long committed = file.readLong();
+                assertEquals(1, sequence);
+                assertEquals(0, committed);
+            } finally {
+                file.close();
+            }
+        } finally {
+            counters.close();
+        }
+    }
+
+    @Test
+    public void indexBasedOperations() throws IOException {
+        DurableCounters counters = new DurableCounters(path, LENGTH);
+        try {
+            assertEquals(1, counters.incrementAndGet(1));
+            assertEquals(1, counters.getAndAdd(1, 9));
+            assertEquals(9, counters.decrementAndGet(1));
+            assertFalse(counters.compareAndSet(1, 0, 5));
+            assertTrue(counters.compareAndSet(1, 9, 5));
+            assertEquals(10, counters.updateAndGet(1, new UpdateFunction() {
+                @Override
+                public long apply(long value) {
+                    return value * 2;
+                }
+            }));
+            // Both ways reach the very same slot
+            assertEquals(10, counters.counter(1).get());
+            assertEquals(0, counters.get(0));
+        } finally {
+            counters.close();
+        }
+    }
+
+    @Test
+    public void viewsAreCached() throws IOException {
+        DurableCounters counters = new DurableCounters(path, LENGTH);
+        try {
+            assertSame(counters.counter(0), counters.counter(0));
+        } finally {
+            counters.close();
+        }
+    }
+
+    @Test
+    public void flushesAreBatched() throws IOException {
+        DurableCounters counters = new DurableCounters(path, LENGTH, 10, DurableCounters.NO_AUTO_FLUSH);
+        try {
+            Counter counter = counters.counter(0);
+            for (int i = 0; i < 25; i++) {
+                counter.incrementAndGet();
+            }
+            // Two batches of ten have been flushed, the third one is still open
+            assertEquals(3, counters.getSequence());
+
+            counters.force();
+            counter.incrementAndGet();
+            assertEquals(4, counters.getSequence());
+        } finally {
+            counters.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lengthMustMatch() throws IOException {
+        new DurableCounters(path, LENGTH).close();
+        new DurableCounters(path, LENGTH + 1);
+    }
+}
@@ -0,0 +1,51 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.FlatCombiningCounter;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves that the implementation of org.zezutom.concurrencypatterns.activeobject.FlatCombiningCounter
+ * is thread-safe, as the counter - under race conditions - consistently returns expected values.
+ */
+public class FlatCombiningCounterMultiThreadedTest extends ThreadSafeCounterMultiThreadedTest {
+
+    @BeforeClass
+    public static void init() {
+        ThreadSafeCounterMultiThreadedTest.init();
+
+        // Replaces the default counter with the flat-combining one
+        counter = new FlatCombiningCounter(INITIAL_VALUE);
+    }
+
+    @Test
+    public void recordsOfIdleThreadsAreUnlinked() throws InterruptedException {
+        final FlatCombiningCounter combining = new FlatCombiningCounter(0);
+        final int threads = TestExecutor.DEFAULT_CONCURRENT_THREADS * 4;
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    combining.incrementAndGet();
+                }
+            });
+            thread.start();
+            thread.join();
+        }
+        assertEquals(threads, combining.getRecordCount());
+
+        // The threads are gone, their records age with each pass
+        for (int i = 0; i <= FlatCombiningCounter.MAX_IDLE_PASSES; i++) {
+            combining.incrementAndGet();
+        }
+        // Only the own record and the head of the list are left
+        assertTrue(combining.getRecordCount() <= 2);
+        assertEquals(threads + FlatCombiningCounter.MAX_IDLE_PASSES + 1, combining.get());
+    }
+}
@@ -0,0 +1,46 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.ReadMode;
+import org.zezutom.concurrencypatterns.activeobject.SchedulerOptions;
+import org.zezutom.concurrencypatterns.activeobject.ThreadSafeCounter;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Runs the very same checks as org.zezutom.concurrency.patterns.activeobject.test.ThreadSafeCounterMultiThreadedTest,
+ * this time against a counter serving get() from the published value. The checks read the value only once
+ * all of the blocking calls have completed, hence the published value must be accurate.
+ */
+public class PublishedReadThreadSafeCounterMultiThreadedTest extends ThreadSafeCounterMultiThreadedTest {
+
+    @BeforeClass
+    public static void init() {
+        ThreadSafeCounterMultiThreadedTest.init();
+
+        // Replaces the default counter with the one reading the published value
+        counter = new ThreadSafeCounter(INITIAL_VALUE, SchedulerOptions.defaults(), ReadMode.PUBLISHED);
+    }
+
+    @Test
+    public void readsOwnWrites() {
+        final AtomicInteger staleReads = new AtomicInteger();
+        testExecutor.runTest(new Runnable() {
+            @Override
+            public void run() {
+                long value = counter.incrementAndGet();
+                if (counter.get() < value) {
+                    staleReads.incrementAndGet();   // older than the client's own write
+                }
+            }
+        });
+        assertEquals(0, staleReads.get());
+        assertEquals(startValue + TestExecutor.MAX_ITERATIONS * TestExecutor.DEFAULT_CONCURRENT_THREADS, counter.get());
+    }
+}
@@ -0,0 +1,100 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.RingBuffer;
+import org.zezutom.concurrencypatterns.activeobject.WaitStrategy;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves that org.zezutom.concurrencypatterns.activeobject.RingBuffer neither loses nor reorders
+ * the requests of concurrent producers, regardless of the wait strategy.
+ */
+public class RingBufferMultiThreadedTest {
+
+    public static final int CAPACITY = 8;
+
+    @Test
+    public void spin() throws InterruptedException {
+        // Busy spinning makes no progress unless the producers and the consumer run in parallel
+        assumeTrue(Runtime.getRuntime().availableProcessors() > 1);
+        assertNoLossNoReordering(WaitStrategy.SPIN);
+    }
+
+    @Test
+    public void yield() throws InterruptedException {
+        assertNoLossNoReordering(WaitStrategy.YIELD);
+    }
+
+    @Test
+    public void park() throws InterruptedException {
+        assertNoLossNoReordering(WaitStrategy.PARK);
+    }
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(8, new RingBuffer<Long>(5, WaitStrategy.SPIN).getCapacity());
+        assertEquals(1, new RingBuffer<Long>(1, WaitStrategy.SPIN).getCapacity());
+    }
+
+    private void assertNoLossNoReordering(WaitStrategy waitStrategy) throws InterruptedException {
+        final RingBuffer<long[]> buffer = new RingBuffer<>(CAPACITY, waitStrategy);
+        final AtomicInteger producerIds = new AtomicInteger();
+        final int producers = TestExecutor.DEFAULT_CONCURRENT_THREADS;
+        final int total = TestExecutor.MAX_ITERATIONS * producers;
+
+        // Consumes everything on a thread of its own, checks the per-producer ordering
+        final AtomicLong consumed = new AtomicLong();
+        final AtomicInteger outOfOrder = new AtomicInteger();
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long[] last = new long[producers];
+                try {
+                    for (int i = 0; i < total; i++) {
+                        long[] message = buffer.take();
+                        int producer = (int) message[0];
+                        if (message[1] <= last[producer]) {
+                            outOfOrder.incrementAndGet();
+                        }
+                        last[producer] = message[1];
+                        consumed.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    // The test fails on the count
+                }
+            }
+        });
+        consumer.start();
+
+        final ThreadLocal<long[]> state = new ThreadLocal<long[]>() {
+            @Override
+            protected long[] initialValue() {
+                return new long[] {producerIds.getAndIncrement(), 0};
+            }
+        };
+        TestExecutor.get().runTest(new Runnable() {
+            @Override
+            public void run() {
+                long[] producer = state.get();
+                try {
+                    buffer.put(new long[] {producer[0], ++producer[1]});
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+
+        consumer.join(10000L);
+        assertEquals(total, consumed.get());
+        assertTrue("Requests were reordered " + outOfOrder.get() + " times!", outOfOrder.get() == 0);
+    }
+}
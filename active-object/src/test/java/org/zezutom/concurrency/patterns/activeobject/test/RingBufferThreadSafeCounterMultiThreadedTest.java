@@ -0,0 +1,27 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.BeforeClass;
+import org.zezutom.concurrencypatterns.activeobject.ActivationListType;
+import org.zezutom.concurrencypatterns.activeobject.SchedulerOptions;
+import org.zezutom.concurrencypatterns.activeobject.SchedulingMode;
+import org.zezutom.concurrencypatterns.activeobject.ThreadSafeCounter;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Runs the very same checks as org.zezutom.concurrency.patterns.activeobject.test.ThreadSafeCounterMultiThreadedTest,
+ * this time against a counter whose activation list is a ring buffer.
+ */
+public class RingBufferThreadSafeCounterMultiThreadedTest extends ThreadSafeCounterMultiThreadedTest {
+
+    @BeforeClass
+    public static void init() {
+        ThreadSafeCounterMultiThreadedTest.init();
+
+        // A tiny buffer, so that the clients keep running into a full buffer
+        counter = new ThreadSafeCounter(INITIAL_VALUE, SchedulerOptions.defaults()
+                .withMode(SchedulingMode.BATCHED)
+                .withActivationList(ActivationListType.RING_BUFFER)
+                .withCapacity(4));
+    }
+}
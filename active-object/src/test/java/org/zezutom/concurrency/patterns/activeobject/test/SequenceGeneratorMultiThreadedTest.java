@@ -0,0 +1,55 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.SequenceGenerator;
+import org.zezutom.concurrencypatterns.activeobject.ThreadSafeCounter;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves that org.zezutom.concurrencypatterns.activeobject.SequenceGenerator never hands out
+ * the same id twice and that each thread sees its ids increasing, while the blocks keep growing.
+ */
+public class SequenceGeneratorMultiThreadedTest {
+
+    @Test
+    public void idsAreUniqueAndMonotonicPerThread() {
+        final SequenceGenerator generator = new SequenceGenerator(new ThreadSafeCounter(0), 16, 1024,
+                SequenceGenerator.DEFAULT_GROWTH_WINDOW_NANOS);
+        final Set<Long> ids = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+        final AtomicInteger duplicates = new AtomicInteger();
+        final AtomicInteger reorderings = new AtomicInteger();
+        final ThreadLocal<Long> lastIds = new ThreadLocal<Long>() {
+            @Override
+            protected Long initialValue() {
+                return -1L;
+            }
+        };
+
+        TestExecutor.get().runTest(new Runnable() {
+            @Override
+            public void run() {
+                long id = generator.nextId();
+                if (!ids.add(id)) {
+                    duplicates.incrementAndGet();
+                }
+                if (id <= lastIds.get()) {
+                    reorderings.incrementAndGet();
+                }
+                lastIds.set(id);
+            }
+        });
+
+        assertEquals(0, duplicates.get());
+        assertEquals(0, reorderings.get());
+        assertEquals(TestExecutor.MAX_ITERATIONS * TestExecutor.DEFAULT_CONCURRENT_THREADS, ids.size());
+    }
+}
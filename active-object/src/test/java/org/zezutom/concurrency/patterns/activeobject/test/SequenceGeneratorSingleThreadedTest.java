@@ -0,0 +1,79 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.Counter;
+import org.zezutom.concurrencypatterns.activeobject.SequenceGenerator;
+import org.zezutom.concurrencypatterns.activeobject.ThreadUnsafeCounter;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves the core functionality, all tests should pass.
+ */
+public class SequenceGeneratorSingleThreadedTest {
+
+    // The first id to hand out
+    public static final long INITIAL_VALUE = 10L;
+
+    public static final int BLOCK_SIZE = 4;
+
+    private Counter counter;
+
+    @Before
+    public void init() {
+        counter = new ThreadUnsafeCounter(INITIAL_VALUE);
+    }
+
+    @Test
+    public void idsAreContiguousWithinOneThread() {
+        SequenceGenerator generator = new SequenceGenerator(counter, BLOCK_SIZE);
+        for (long expected = INITIAL_VALUE; expected < INITIAL_VALUE + 3 * BLOCK_SIZE; expected++) {
+            assertEquals(expected, generator.nextId());
+        }
+    }
+
+    @Test
+    public void blocksAreReservedAtOnce() {
+        SequenceGenerator generator = new SequenceGenerator(counter, BLOCK_SIZE);
+        generator.nextId();
+        assertEquals(INITIAL_VALUE + BLOCK_SIZE, counter.get());
+
+        for (int i = 1; i < BLOCK_SIZE; i++) {
+            generator.nextId();
+        }
+        assertEquals(INITIAL_VALUE + BLOCK_SIZE, counter.get());
+
+        generator.nextId();
+        assertEquals(INITIAL_VALUE + 2 * BLOCK_SIZE, counter.get());
+    }
+
+    @Test
+    public void blocksGrowUnderHeavyDemand() {
+        // Any block is used up 'too fast'
+        SequenceGenerator generator = new SequenceGenerator(counter, BLOCK_SIZE, 4 * BLOCK_SIZE, Long.MAX_VALUE);
+        assertEquals(BLOCK_SIZE, generator.getBlockSize());
+        for (int i = 0; i < 3 * BLOCK_SIZE + 1; i++) {
+            generator.nextId();
+        }
+        // 4 + 8 ids have been used, the third block is the maximum of 16 already
+        assertEquals(4 * BLOCK_SIZE, generator.getBlockSize());
+    }
+
+    @Test
+    public void blocksShrinkBackWhenIdle() {
+        // Any block is used up 'slowly'
+        SequenceGenerator generator = new SequenceGenerator(counter, BLOCK_SIZE, 4 * BLOCK_SIZE, 0);
+        for (int i = 0; i < 10 * BLOCK_SIZE; i++) {
+            generator.nextId();
+        }
+        assertEquals(BLOCK_SIZE, generator.getBlockSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidBlockSize() {
+        new SequenceGenerator(counter, BLOCK_SIZE, BLOCK_SIZE - 1, 0);
+    }
+}
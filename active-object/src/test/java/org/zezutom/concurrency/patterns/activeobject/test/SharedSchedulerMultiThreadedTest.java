@@ -0,0 +1,107 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.ActiveObjects;
+import org.zezutom.concurrencypatterns.activeobject.Counter;
+import org.zezutom.concurrencypatterns.activeobject.Scheduler;
+import org.zezutom.concurrencypatterns.activeobject.SharedScheduler;
+import org.zezutom.concurrencypatterns.activeobject.ThreadSafeCounter;
+import org.zezutom.concurrencypatterns.activeobject.ThreadUnsafeCounter;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves that org.zezutom.concurrencypatterns.activeobject.SharedScheduler keeps the messages
+ * of each active object sequential, while many active objects share just a few threads.
+ */
+public class SharedSchedulerMultiThreadedTest {
+
+    public static final int WORKER_THREADS = 2;
+
+    public static final int COUNTER_COUNT = 1000;
+
+    public static final int ITERATIONS = 100;
+
+    private SharedScheduler scheduler;
+
+    @Before
+    public void init() {
+        scheduler = new SharedScheduler(WORKER_THREADS);
+    }
+
+    @After
+    public void cleanUp() {
+        scheduler.close();
+    }
+
+    @Test
+    public void manyCountersFewThreads() {
+        int threadsBefore = Thread.activeCount();
+
+        final Counter[] counters = new Counter[COUNTER_COUNT];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new ThreadSafeCounter(0, scheduler.newMailbox());
+        }
+
+        // Each client keeps hitting all of the counters
+        TestExecutor.get(ITERATIONS, TestExecutor.DEFAULT_CONCURRENT_THREADS).runTest(new Runnable() {
+            @Override
+            public void run() {
+                for (Counter counter : counters) {
+                    counter.incrementAndGet();
+                }
+            }
+        });
+
+        for (Counter counter : counters) {
+            assertEquals(ITERATIONS * TestExecutor.DEFAULT_CONCURRENT_THREADS, counter.get());
+        }
+        assertTrue("Too many threads!", Thread.activeCount() - threadsBefore <= WORKER_THREADS);
+    }
+
+    @Test
+    public void messagesOfAnActiveObjectAreSequential() {
+        // Only the scheduler can make this counter thread-safe
+        final Counter counter = ActiveObjects.create(Counter.class, new ThreadUnsafeCounter(0), scheduler.newMailbox());
+        TestExecutor.get().runTest(new Runnable() {
+            @Override
+            public void run() {
+                counter.incrementAndGet();
+            }
+        });
+        assertEquals(TestExecutor.MAX_ITERATIONS * TestExecutor.DEFAULT_CONCURRENT_THREADS, counter.get());
+    }
+
+    @Test
+    public void closeLetsPendingMessagesFinish() throws InterruptedException {
+        final AtomicInteger processed = new AtomicInteger();
+        Scheduler mailbox = scheduler.newMailbox();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mailbox.enqueue(new Runnable() {
+                @Override
+                public void run() {
+                    processed.incrementAndGet();
+                }
+            });
+        }
+        scheduler.close();
+        assertTrue(scheduler.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(ITERATIONS, processed.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedSchedulerRejectsMessages() {
+        Counter counter = new ThreadSafeCounter(0, scheduler.newMailbox());
+        scheduler.close();
+        counter.incrementAndGet();
+    }
+}
@@ -0,0 +1,59 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.StripedCounter;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Runs the very same checks as org.zezutom.concurrency.patterns.activeobject.test.ThreadSafeCounterMultiThreadedTest,
+ * this time against a striped counter. The counter never loses an update, however the values it returns
+ * are only estimates, see org.zezutom.concurrencypatterns.activeobject.StripedCounter.
+ */
+public class StripedCounterMultiThreadedTest extends ThreadSafeCounterMultiThreadedTest {
+
+    @BeforeClass
+    public static void init() {
+        ThreadSafeCounterMultiThreadedTest.init();
+        counter = new StripedCounter(INITIAL_VALUE);
+    }
+
+    /**
+     * The results are not unique, but each of them already includes the update of the client
+     */
+    @Override
+    @Test
+    public void eachClientReceivesItsOwnResult() {
+        final int iterations = TestExecutor.MAX_ITERATIONS * TestExecutor.DEFAULT_CONCURRENT_THREADS;
+        final AtomicInteger outOfRange = new AtomicInteger();
+        testExecutor.runTest(new Runnable() {
+            @Override
+            public void run() {
+                long result = counter.incrementAndGet();
+                if (result <= startValue || result > startValue + iterations) {
+                    outOfRange.incrementAndGet();
+                }
+            }
+        });
+        assertEquals(0, outOfRange.get());
+        assertEquals(startValue + iterations, counter.get());
+    }
+
+    @Test
+    public void manyConcurrentWriters() {
+        final int threads = TestExecutor.DEFAULT_CONCURRENT_THREADS * 8;
+        TestExecutor.get(TestExecutor.MAX_ITERATIONS, threads).runTest(new Runnable() {
+            @Override
+            public void run() {
+                counter.getAndIncrement();
+            }
+        });
+        assertEquals(startValue + TestExecutor.MAX_ITERATIONS * threads, counter.get());
+    }
+}
@@ -0,0 +1,130 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.Counter;
+import org.zezutom.concurrencypatterns.activeobject.StripedCounter;
+import org.zezutom.concurrencypatterns.activeobject.UpdateFunction;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves the core functionality, all tests should pass.
+ */
+public class StripedCounterSingleThreadedTest {
+
+    // The value the counter is initialized with
+    public static final long INITIAL_VALUE = 10L;
+
+    private Counter counter;
+
+    @Before
+    public void init() {
+        counter = new StripedCounter(INITIAL_VALUE);
+    }
+
+    @Test
+    public void get() {
+        assertEquals(INITIAL_VALUE, counter.get());
+    }
+
+    @Test
+    public void incrementAndGet() {
+        final long expected = INITIAL_VALUE + 1;
+        assertEquals(expected, counter.incrementAndGet());
+        assertEquals(expected, counter.get());
+    };
+
+    @Test
+    public void getAndIncrement() {
+        assertEquals(INITIAL_VALUE, counter.getAndIncrement());
+        assertEquals(INITIAL_VALUE + 1, counter.get());
+    };
+
+    @Test
+    public void decrementAndGet() {
+        final long expected = INITIAL_VALUE - 1;
+        assertEquals(expected, counter.decrementAndGet());
+        assertEquals(expected, counter.get());
+    };
+
+    @Test
+    public void getAndDecrement() {
+        assertEquals(INITIAL_VALUE, counter.getAndDecrement());
+        assertEquals(INITIAL_VALUE - 1, counter.get());
+    };
+
+    @Test
+    public void addAndGet() {
+        final long expected = INITIAL_VALUE + 5;
+        assertEquals(expected, counter.addAndGet(5));
+        assertEquals(expected, counter.get());
+    }
+
+    @Test
+    public void getAndAdd() {
+        assertEquals(INITIAL_VALUE, counter.getAndAdd(-5));
+        assertEquals(INITIAL_VALUE - 5, counter.get());
+    }
+
+    @Test
+    public void compareAndSet() {
+        assertFalse(counter.compareAndSet(INITIAL_VALUE + 1, 0));
+        assertEquals(INITIAL_VALUE, counter.get());
+        assertTrue(counter.compareAndSet(INITIAL_VALUE, 0));
+        assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void updateAndGet() {
+        final long expected = INITIAL_VALUE * 2;
+        assertEquals(expected, counter.updateAndGet(new UpdateFunction() {
+            @Override
+            public long apply(long value) {
+                return value * 2;
+            }
+        }));
+        assertEquals(expected, counter.get());
+        assertEquals(expected + 1, counter.incrementAndGet());
+    }
+
+    @Test
+    public void failedUpdateIsRethrown() {
+        try {
+            counter.updateAndGet(new UpdateFunction() {
+                @Override
+                public long apply(long value) {
+                    throw new IllegalStateException("Failed on purpose");
+                }
+            });
+            fail("The failure should have been rethrown.");
+        } catch (IllegalStateException e) {
+            // The cells are unlocked again, the counter remains intact and usable
+            assertEquals(INITIAL_VALUE, counter.get());
+            assertEquals(INITIAL_VALUE + 1, counter.incrementAndGet());
+        }
+    }
+
+    @Test
+    public void sentinelValueIsNeverLost() {
+        // Long.MIN_VALUE marks a locked cell, yet it is a valid value of the counter
+        assertTrue(counter.compareAndSet(INITIAL_VALUE, Long.MIN_VALUE));
+        assertEquals(Long.MIN_VALUE, counter.get());
+        assertEquals(Long.MIN_VALUE + 1, counter.incrementAndGet());
+        assertEquals(Long.MIN_VALUE, counter.decrementAndGet());
+        assertEquals(Long.MIN_VALUE, new StripedCounter(Long.MIN_VALUE).get());
+    }
+
+    @Test
+    public void applyBatch() {
+        final long[] expected = {INITIAL_VALUE + 1, INITIAL_VALUE + 11, INITIAL_VALUE + 8};
+        assertArrayEquals(expected, counter.applyBatch(new long[] {1, 10, -3}));
+        assertEquals(INITIAL_VALUE + 8, counter.get());
+    }
+}
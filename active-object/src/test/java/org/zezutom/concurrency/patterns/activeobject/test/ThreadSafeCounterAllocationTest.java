@@ -0,0 +1,79 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.ActivationListType;
+import org.zezutom.concurrencypatterns.activeobject.Counter;
+import org.zezutom.concurrencypatterns.activeobject.SchedulerOptions;
+import org.zezutom.concurrencypatterns.activeobject.SchedulingMode;
+import org.zezutom.concurrencypatterns.activeobject.ThreadSafeCounter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves that the blocking calls of org.zezutom.concurrencypatterns.activeobject.ThreadSafeCounter
+ * create no garbage in a steady state, provided the counter uses a ring buffer and batched scheduling.
+ * Allocations are measured over all of the live threads, the private thread of the counter included.
+ */
+public class ThreadSafeCounterAllocationTest {
+
+    public static final int WARM_UP_ITERATIONS = 200000;
+
+    public static final int ITERATIONS = 100000;
+
+    // Leaves room for incidental allocations, such as those of the measurement itself
+    public static final long ALLOCATION_TOLERANCE_BYTES = 16 * 1024;
+
+    private com.sun.management.ThreadMXBean threadBean;
+
+    private Counter counter;
+
+    @Before
+    public void init() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        counter = new ThreadSafeCounter(0, SchedulerOptions.defaults()
+                .withMode(SchedulingMode.BATCHED)
+                .withActivationList(ActivationListType.RING_BUFFER));
+    }
+
+    @Test
+    public void steadyStateIsAllocationFree() {
+        // Lets the thread-local message get created and the JIT do its job
+        run(WARM_UP_ITERATIONS);
+
+        long[] threadIds = threadBean.getAllThreadIds();
+        long before = sum(threadBean.getThreadAllocatedBytes(threadIds));
+        run(ITERATIONS);
+        long allocated = sum(threadBean.getThreadAllocatedBytes(threadIds)) - before;
+
+        assertEquals(WARM_UP_ITERATIONS + ITERATIONS, counter.get());
+        assertTrue(allocated + " bytes allocated over " + ITERATIONS + " calls!", allocated < ALLOCATION_TOLERANCE_BYTES);
+    }
+
+    private void run(int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            counter.incrementAndGet();
+        }
+    }
+
+    private long sum(long[] values) {
+        long sum = 0;
+        for (long value : values) {
+            if (value > 0) sum += value;
+        }
+        return sum;
+    }
+}
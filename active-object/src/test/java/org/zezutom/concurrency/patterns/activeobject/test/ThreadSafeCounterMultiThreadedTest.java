@@ -7,6 +7,10 @@ import org.zezutom.concurrencypatterns.activeobject.Counter;
 import org.zezutom.concurrencypatterns.activeobject.ThreadSafeCounter;
 import org.zezutom.concurrencypatterns.test.util.TestExecutor;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -20,28 +24,35 @@ public class ThreadSafeCounterMultiThreadedTest {
     // The value the counter is initialized with
     public static final long INITIAL_VALUE = 10L;
 
+    // Used by the bulk operations, both add up to the same total
+    public static final long DELTA = 3L;
+    public static final long[] BATCH = {1L, -1L, 2L, 1L};
+
     // Concurrent counter threads: per-method commands
     private static Runnable getCommand;
     private static Runnable incrementAndGetCommand;
     private static Runnable getAndIncrementCommand;
     private static Runnable decrementAndGetCommand;
     private static Runnable getAndDecrementCommand;
+    private static Runnable addAndGetCommand;
+    private static Runnable compareAndSetCommand;
+    private static Runnable applyBatchCommand;
 
-    // Multi-threaded org.zezutom.concurrencypatterns.monitorobject.test executor
-    private static TestExecutor testExecutor;
+    // Multi-threaded test executor
+    protected static TestExecutor testExecutor;
 
     // An instance of the tested class. Being 'volatile' indicates it's going to be used by multiple threads
-    private static volatile Counter counter;
+    protected static volatile Counter counter;
 
     // The value of the counter prior to any testing
-    private long startValue;
+    protected long startValue;
 
     @BeforeClass
     public static void init() {
         // Instantiates the counter with the initial value
         counter = new ThreadSafeCounter(INITIAL_VALUE);
 
-        // Initializes multi-threaded org.zezutom.concurrencypatterns.monitorobject.test executor
+        // Initializes multi-threaded test executor
         testExecutor = TestExecutor.get();
 
         // Initializes individual commands
@@ -50,6 +61,9 @@ public class ThreadSafeCounterMultiThreadedTest {
         getAndIncrementCommand =    new Runnable() {@Override public void run() { counter.getAndIncrement(); } };
         decrementAndGetCommand =    new Runnable() {@Override public void run() { counter.decrementAndGet(); } };
         getAndDecrementCommand =    new Runnable() {@Override public void run() { counter.getAndDecrement(); } };
+        addAndGetCommand =          new Runnable() {@Override public void run() { counter.addAndGet(DELTA); } };
+        compareAndSetCommand =      new Runnable() {@Override public void run() { casIncrement(); } };
+        applyBatchCommand =         new Runnable() {@Override public void run() { counter.applyBatch(BATCH); } };
     }
 
     @Before
@@ -97,6 +111,45 @@ public class ThreadSafeCounterMultiThreadedTest {
         assertEquals(startValue, counter.get());
     }
 
+    @Test
+    public void addAndGet() {
+        testExecutor.runTest(addAndGetCommand);
+        assertEquals(startValue + DELTA * TestExecutor.MAX_ITERATIONS * TestExecutor.DEFAULT_CONCURRENT_THREADS, counter.get());
+    }
+
+    @Test
+    public void compareAndSet() {
+        testExecutor.runTest(compareAndSetCommand);
+        assertEquals(getExpectedIncrementedValue(), counter.get());
+    }
+
+    @Test
+    public void applyBatch() {
+        testExecutor.runTest(applyBatchCommand);
+        assertEquals(startValue + DELTA * TestExecutor.MAX_ITERATIONS * TestExecutor.DEFAULT_CONCURRENT_THREADS, counter.get());
+    }
+
+    @Test
+    public void eachClientReceivesItsOwnResult() {
+        final Set<Long> results = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+        testExecutor.runTest(new Runnable() {
+            @Override
+            public void run() {
+                results.add(counter.getAndIncrement());
+            }
+        });
+        // No two clients should ever see the same value
+        assertEquals(TestExecutor.MAX_ITERATIONS * TestExecutor.DEFAULT_CONCURRENT_THREADS, results.size());
+    }
+
+    // Increments the counter, retries as long as other clients keep getting in the way
+    private static void casIncrement() {
+        long current;
+        do {
+            current = counter.get();
+        } while (!counter.compareAndSet(current, current + 1));
+    }
+
     private long getExpectedIncrementedValue() {
         return startValue + TestExecutor.MAX_ITERATIONS * TestExecutor.DEFAULT_CONCURRENT_THREADS;
     }
@@ -4,8 +4,13 @@ import org.junit.Before;
 import org.junit.Test;
 import org.zezutom.concurrencypatterns.activeobject.Counter;
 import org.zezutom.concurrencypatterns.activeobject.ThreadSafeCounter;
+import org.zezutom.concurrencypatterns.activeobject.UpdateFunction;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author Tomas Zezula
@@ -54,4 +59,59 @@ public class ThreadSafeCounterSingleThreadedTest {
         assertEquals(INITIAL_VALUE, counter.getAndDecrement());
         assertEquals(INITIAL_VALUE - 1, counter.get());
     };
+
+    @Test
+    public void addAndGet() {
+        final long expected = INITIAL_VALUE + 5;
+        assertEquals(expected, counter.addAndGet(5));
+        assertEquals(expected, counter.get());
+    }
+
+    @Test
+    public void getAndAdd() {
+        assertEquals(INITIAL_VALUE, counter.getAndAdd(-5));
+        assertEquals(INITIAL_VALUE - 5, counter.get());
+    }
+
+    @Test
+    public void compareAndSet() {
+        assertFalse(counter.compareAndSet(INITIAL_VALUE + 1, 0));
+        assertTrue(counter.compareAndSet(INITIAL_VALUE, 0));
+        assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void updateAndGet() {
+        final long expected = INITIAL_VALUE * 2;
+        assertEquals(expected, counter.updateAndGet(new UpdateFunction() {
+            @Override
+            public long apply(long value) {
+                return value * 2;
+            }
+        }));
+        assertEquals(expected, counter.get());
+    }
+
+    @Test
+    public void applyBatch() {
+        final long[] expected = {INITIAL_VALUE + 1, INITIAL_VALUE + 11, INITIAL_VALUE + 8};
+        assertArrayEquals(expected, counter.applyBatch(new long[] {1, 10, -3}));
+        assertEquals(INITIAL_VALUE + 8, counter.get());
+    }
+
+    @Test
+    public void failedUpdateIsRethrown() {
+        try {
+            counter.updateAndGet(new UpdateFunction() {
+                @Override
+                public long apply(long value) {
+                    throw new IllegalStateException("Failed on purpose");
+                }
+            });
+            fail("The failure should have been rethrown.");
+        } catch (IllegalStateException e) {
+            // The counter remains intact and usable
+            assertEquals(INITIAL_VALUE, counter.get());
+        }
+    }
 }
@@ -0,0 +1,56 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.TimeSource;
+import org.zezutom.concurrencypatterns.activeobject.WindowedCounter;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves that org.zezutom.concurrencypatterns.activeobject.WindowedCounter never loses an event,
+ * not even when the buckets keep rotating under race conditions.
+ */
+public class WindowedCounterMultiThreadedTest {
+
+    public static final int SECONDS = 60;
+
+    @Test
+    public void noEventIsLost() {
+        final WindowedCounter counter = new WindowedCounter(SECONDS);
+        TestExecutor.get().runTest(new Runnable() {
+            @Override
+            public void run() {
+                counter.increment();
+            }
+        });
+        assertEquals(TestExecutor.MAX_ITERATIONS * TestExecutor.DEFAULT_CONCURRENT_THREADS,
+                counter.countOver(SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void noEventIsLostWhileRotating() {
+        // Every tenth event moves the time forward by a millisecond. The window spans all of the events,
+        // with a wide margin for a thread which is late with its event.
+        final AtomicLong now = new AtomicLong();
+        final WindowedCounter counter = new WindowedCounter(SECONDS, new TimeSource() {
+            @Override
+            public long currentTimeMillis() {
+                return now.getAndIncrement() / 10;
+            }
+        });
+        TestExecutor.get().runTest(new Runnable() {
+            @Override
+            public void run() {
+                counter.increment();
+            }
+        });
+        assertEquals(TestExecutor.MAX_ITERATIONS * TestExecutor.DEFAULT_CONCURRENT_THREADS,
+                counter.countOver(SECONDS, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,99 @@
+package org.zezutom.concurrency.patterns.activeobject.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.activeobject.TimeSource;
+import org.zezutom.concurrencypatterns.activeobject.WindowedCounter;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves the core functionality, all tests should pass. The time is under the control of the test.
+ */
+public class WindowedCounterSingleThreadedTest {
+
+    public static final int SECONDS = 10;
+
+    // The current time, in milliseconds
+    private long now;
+
+    private WindowedCounter counter;
+
+    @Before
+    public void init() {
+        now = 1000000L;
+        counter = new WindowedCounter(SECONDS, new TimeSource() {
+            @Override
+            public long currentTimeMillis() {
+                return now;
+            }
+        });
+    }
+
+    @Test
+    public void countsWithinTheCurrentSecond() {
+        counter.increment();
+        counter.add(4);
+        assertEquals(5, counter.countOver(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void fullBucketSaturates() {
+        final long max = 0xFFFFFFFFL;
+        counter.add(max - 1);
+        counter.add(2);
+        assertEquals(max, counter.countOver(1, TimeUnit.SECONDS));
+        counter.add(max);
+        assertEquals(max, counter.countOver(1, TimeUnit.SECONDS));
+
+        // The epoch is intact, hence the bucket is still reused once its second is over
+        now += SECONDS * 1000;
+        counter.increment();
+        assertEquals(1, counter.countOver(SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void windowSlides() {
+        for (int i = 0; i < 5; i++) {
+            counter.add(i + 1);
+            now += 1000;
+        }
+        // The buckets hold 1, 2, 3, 4, 5 events, the current second none
+        assertEquals(0, counter.countOver(1, TimeUnit.SECONDS));
+        assertEquals(5 + 4, counter.countOver(3, TimeUnit.SECONDS));
+        assertEquals(15, counter.countOver(SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void oldBucketsAreReused() {
+        counter.add(100);
+        now += SECONDS * 1000;
+        counter.increment();
+        assertEquals(1, counter.countOver(SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void eventsOutsideTheWindowAreForgotten() {
+        counter.add(100);
+        now += 2 * SECONDS * 1000;
+        assertEquals(0, counter.countOver(SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void rateOver() {
+        counter.add(10);
+        now += 1000;
+        counter.add(20);
+        assertEquals(15.0, counter.rateOver(2, TimeUnit.SECONDS), 0.0);
+        assertEquals(15.0, counter.rateOver(1500, TimeUnit.MILLISECONDS), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void windowTooLong() {
+        counter.countOver(SECONDS + 1, TimeUnit.SECONDS);
+    }
+}
@@ -20,6 +20,20 @@ public class NonBlockingDispatcher {
         this.subscriber = subscriber;
     }
 
+    /**
+     * @param subscriber        receives the results
+     * @param capacity          the maximum number of the pending requests
+     * @param overflowPolicy    what happens to a request arriving at a full queue
+     */
+    public NonBlockingDispatcher(ResultSubscriber subscriber, int capacity, OverflowPolicy overflowPolicy) {
+        queue = new WorkQueue(this, capacity, overflowPolicy);
+        this.subscriber = subscriber;
+    }
+
+    public WorkQueue getQueue() {
+        return queue;
+    }
+
     /**
      * Sends a request to the queue and returns instantly.
      *
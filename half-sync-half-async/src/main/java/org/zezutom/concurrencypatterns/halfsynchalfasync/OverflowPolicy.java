@@ -0,0 +1,15 @@
+package org.zezutom.concurrencypatterns.halfsynchalfasync;
+
+/**
+ * Determines what happens to a request arriving at a full work queue.
+ *
+ * BLOCK        - the submitting thread waits for space to become available, the default
+ * FAIL_FAST    - the request is refused with a RejectedExecutionException
+ * DROP_OLDEST  - the oldest pending request is discarded to make room, its failure is published
+ * CALLER_RUNS  - the submitting thread converts the image itself, which slows the producers down
+ *
+ * @author: Tomas Zezula
+ */
+public enum OverflowPolicy {
+    BLOCK, FAIL_FAST, DROP_OLDEST, CALLER_RUNS
+}
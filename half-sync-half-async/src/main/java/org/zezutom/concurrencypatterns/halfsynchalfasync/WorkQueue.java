@@ -1,61 +1,152 @@
 package org.zezutom.concurrencypatterns.halfsynchalfasync;
 
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Queues incoming requests and notifies the dispatcher when the response is ready.
  *
+ * The queue can be bounded, the overflow policy then decides what to do with the requests which don't fit.
+ * The gauges (queue depth, time spent waiting for space, rejected requests) help to size the queue.
+ *
  * @author: Tomas Zezula
  * Date: 24/08/2014
  */
 public class WorkQueue {
 
     // Activation List: incoming requests (tasks) are put into a queue
-    private volatile BlockingQueue<Callable<Boolean>> taskQueue = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Callable<Boolean>> taskQueue;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final NonBlockingDispatcher dispatcher;
+
+    // Takes the requests off the queue one by one
+    private final Thread consumer;
+
+    // Gauges, only updated once the queue is full
+    private final AtomicLong enqueueWaitNanos = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
 
     public WorkQueue(final NonBlockingDispatcher dispatcher) {
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                while(taskQueue.isEmpty())
-                    ;   // await tasks
+        this(dispatcher, Integer.MAX_VALUE, OverflowPolicy.BLOCK);
+    }
 
-                // This is the actual task scheduler. It only allows for a single task at a time.
-                ExecutorService executorService = Executors.newSingleThreadExecutor();
+    /**
+     * @param dispatcher        receives the results
+     * @param capacity          the maximum number of the pending requests
+     * @param overflowPolicy    what happens to a request arriving at a full queue
+     */
+    public WorkQueue(final NonBlockingDispatcher dispatcher, int capacity, OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("The overflow policy is required!");
+        }
+        this.taskQueue = new LinkedBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.dispatcher = dispatcher;
 
+        // This is the actual task scheduler. It only allows for a single task at a time, for the life of the queue.
+        consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
                 try {
                     while (true) {
-                        if (taskQueue.isEmpty()) break;
-
-                        // at some point in the future the calculated value will be available
-                        Future<Boolean> future = executorService.submit(taskQueue.take());
-                        while (!future.isDone())
-                            ;   // wait until the calculation is complete
-
                         // publish the result
-                        dispatcher.onResult(future.get());
-
+                        dispatcher.onResult(execute(taskQueue.take()));
                     }
-                } catch (InterruptedException | ExecutionException e) {
-                    throw new RuntimeException("Task execution was failed!");
-                }
-                finally {
-                    executorService.shutdown();
+                } catch (InterruptedException e) {
+                    // The queue has been shut down
                 }
             }
-        }).start();
-
+        });
+        consumer.setDaemon(true);
+        consumer.start();
     }
 
     public void submit(String imgPath, String outPath) {
         submit(createTask(imgPath, outPath));
     }
 
-    private void submit(Callable<Boolean> task) {
+    /**
+     * @return the number of the pending requests
+     */
+    public int getQueueDepth() {
+        return taskQueue.size();
+    }
+
+    /**
+     * @return the total time the submitting threads have spent waiting for space, in nanoseconds
+     */
+    public long getEnqueueWaitNanos() {
+        return enqueueWaitNanos.get();
+    }
+
+    /**
+     * @return the number of the requests refused, discarded or run by the submitting thread so far
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Stops processing the requests, the pending ones are left behind.
+     */
+    public void shutdown() {
+        consumer.interrupt();
+    }
+
+    /**
+     * Queues a request, or applies the overflow policy if there is no space left.
+     *
+     * @param task  the request, its result is published via the dispatcher
+     */
+    public void submit(Callable<Boolean> task) {
+        if (taskQueue.offer(task)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case FAIL_FAST:
+                rejectedCount.incrementAndGet();
+                throw new RejectedExecutionException("The work queue is full!");
+            case DROP_OLDEST:
+                do {
+                    if (taskQueue.poll() != null) {
+                        rejectedCount.incrementAndGet();
+                        dispatcher.onResult(false);
+                    }
+                } while (!taskQueue.offer(task));
+                break;
+            case CALLER_RUNS:
+                rejectedCount.incrementAndGet();
+                runInline(task);
+                break;
+            default:
+                block(task);
+        }
+    }
+
+    private void block(Callable<Boolean> task) {
+        long start = System.nanoTime();
         try {
             taskQueue.put(task);
         } catch (InterruptedException e) {
             throw new RuntimeException("Task scheduling was interrupted!");
+        } finally {
+            enqueueWaitNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private void runInline(Callable<Boolean> task) {
+        dispatcher.onResult(execute(task));
+    }
+
+    // A failed request is published as such, it must not stop the ones behind it
+    private boolean execute(Callable<Boolean> task) {
+        try {
+            return task.call();
+        } catch (Exception e) {
+            return false;
         }
     }
 
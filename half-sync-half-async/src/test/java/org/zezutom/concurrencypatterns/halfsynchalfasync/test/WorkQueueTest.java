@@ -0,0 +1,191 @@
+package org.zezutom.concurrencypatterns.halfsynchalfasync.test;
+
+import org.junit.After;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.halfsynchalfasync.NonBlockingDispatcher;
+import org.zezutom.concurrencypatterns.halfsynchalfasync.OverflowPolicy;
+import org.zezutom.concurrencypatterns.halfsynchalfasync.ResultSubscriber;
+import org.zezutom.concurrencypatterns.halfsynchalfasync.WorkQueue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Proves that a bounded work queue keeps processing the requests and applies its overflow policy
+ * once it is full. A gate holds the consumer busy, so that the queue can be filled up on purpose.
+ *
+ * @author: Tomas Zezula
+ */
+public class WorkQueueTest {
+
+    public static final long TIMEOUT_MILLIS = 5000;
+
+    // The results published so far, in order
+    private final BlockingQueue<Boolean> results = new LinkedBlockingQueue<>();
+
+    private final ResultSubscriber subscriber = new ResultSubscriber() {
+        @Override
+        public void onResult(boolean result) {
+            results.add(result);
+        }
+    };
+
+    // The consumer has taken the gate
+    private final CountDownLatch gateTaken = new CountDownLatch(1);
+
+    // Lets the consumer go past the gate
+    private final CountDownLatch gateOpen = new CountDownLatch(1);
+
+    private final Callable<Boolean> gate = new Callable<Boolean>() {
+        @Override
+        public Boolean call() throws Exception {
+            gateTaken.countDown();
+            return gateOpen.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    };
+
+    private WorkQueue queue;
+
+    @After
+    public void cleanUp() {
+        gateOpen.countDown();
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    public void consumerOutlivesEmptyQueue() throws InterruptedException {
+        queue = newQueue(1, OverflowPolicy.BLOCK);
+        queue.submit(task(true));
+        assertEquals(Boolean.TRUE, nextResult());
+
+        // The queue has been empty for a while, yet the requests keep being processed
+        Thread.sleep(50);
+        queue.submit(task(true));
+        assertEquals(Boolean.TRUE, nextResult());
+    }
+
+    @Test
+    public void failedRequestDoesNotStopTheOthers() throws InterruptedException {
+        queue = newQueue(1, OverflowPolicy.BLOCK);
+        queue.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                throw new IllegalStateException("Conversion failed!");
+            }
+        });
+        assertEquals(Boolean.FALSE, nextResult());
+        queue.submit(task(true));
+        assertEquals(Boolean.TRUE, nextResult());
+    }
+
+    @Test
+    public void blockWaitsForSpace() throws InterruptedException {
+        queue = newQueue(1, OverflowPolicy.BLOCK);
+        fillUp();
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                queue.submit(task(true));
+            }
+        });
+        producer.start();
+        producer.join(50);
+        assertTrue("The producer should be waiting for space!", producer.isAlive());
+
+        gateOpen.countDown();
+        producer.join(TIMEOUT_MILLIS);
+        assertFalse(producer.isAlive());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Boolean.TRUE, nextResult());
+        }
+        assertTrue(queue.getEnqueueWaitNanos() > 0);
+        assertEquals(0, queue.getRejectedCount());
+    }
+
+    @Test
+    public void failFastRejects() throws InterruptedException {
+        queue = newQueue(1, OverflowPolicy.FAIL_FAST);
+        fillUp();
+        try {
+            queue.submit(task(true));
+            fail("The request should have been rejected!");
+        } catch (RejectedExecutionException e) {
+            // Expected
+        }
+        assertEquals(1, queue.getRejectedCount());
+        assertEquals(1, queue.getQueueDepth());
+    }
+
+    @Test
+    public void dropOldestPublishesFailure() throws InterruptedException {
+        queue = newQueue(1, OverflowPolicy.DROP_OLDEST);
+        fillUp();   // the pending request succeeds, unless dropped
+        queue.submit(task(true));
+
+        assertEquals("The oldest request should have been dropped!", Boolean.FALSE, nextResult());
+        assertEquals(1, queue.getRejectedCount());
+        assertEquals(1, queue.getQueueDepth());
+
+        gateOpen.countDown();
+        assertEquals(Boolean.TRUE, nextResult());   // the gate
+        assertEquals(Boolean.TRUE, nextResult());   // the newest request
+    }
+
+    @Test
+    public void callerRunsTheRequest() throws InterruptedException {
+        queue = newQueue(1, OverflowPolicy.CALLER_RUNS);
+        fillUp();
+        final Thread[] runner = new Thread[1];
+        queue.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                runner[0] = Thread.currentThread();
+                return true;
+            }
+        });
+        assertEquals(Thread.currentThread(), runner[0]);
+        assertEquals(Boolean.TRUE, nextResult());
+        assertEquals(1, queue.getRejectedCount());
+    }
+
+    private WorkQueue newQueue(int capacity, OverflowPolicy policy) {
+        return new NonBlockingDispatcher(subscriber, capacity, policy).getQueue();
+    }
+
+    // The consumer is held by the gate and a single request is pending
+    private void fillUp() throws InterruptedException {
+        queue.submit(gate);
+        assertTrue(gateTaken.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        queue.submit(task(true));
+        assertEquals(1, queue.getQueueDepth());
+    }
+
+    private Boolean nextResult() throws InterruptedException {
+        Boolean result = results.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        if (result == null) {
+            fail("No result has been published!");
+        }
+        return result;
+    }
+
+    private static Callable<Boolean> task(final boolean result) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return result;
+            }
+        };
+    }
+}
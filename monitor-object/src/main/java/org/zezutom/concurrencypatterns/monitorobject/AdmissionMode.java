@@ -0,0 +1,13 @@
+package org.zezutom.concurrencypatterns.monitorobject;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Decides who gets a vacant stall:
+ *
+ * FAIR     - the visitors are admitted in the order of their arrival, a newcomer doesn't overtake those waiting
+ * BARGING  - whoever comes when a stall is vacant takes it. Higher throughput, but a waiting visitor may starve.
+ */
+public enum AdmissionMode {
+    FAIR, BARGING
+}
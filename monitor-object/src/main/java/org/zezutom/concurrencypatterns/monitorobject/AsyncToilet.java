@@ -0,0 +1,218 @@
+package org.zezutom.concurrencypatterns.monitorobject;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author Tomas Zezula
+ *
+ * A toilet which doesn't make anybody wait in a thread of their own. A visitor takes a ticket instead,
+ * see enterAsync(), and registers what to do once admitted:
+ *
+ * - the tickets wait in line, in the order of their arrival
+ * - a leaving visitor hands the toilet straight over to the next ticket, the toilet never gets vacant in between
+ * - the continuation of the admitted ticket runs in the leaving thread, or in the executor if there is one
+ * - should the executor reject the continuation (e.g. once shut down), the leaving thread runs it after all,
+ *   as the toilet has been handed over already and mustn't be left occupied by nobody
+ *
+ * Thousands of visitors can thus wait on a handful of threads. The blocking methods are still there,
+ * they simply take a ticket and wait for it.
+ *
+ * Continuations run in the leaving thread are run one after another rather than nested, however long the line.
+ */
+public class AsyncToilet implements Toilet {
+
+    // Runs the continuations, null means the leaving thread does
+    private final Executor executor;
+
+    // Monitor Lock, guards the state and the line
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // The guarded object's state
+    private volatile boolean occupied;
+
+    // The tickets in the order of their arrival, the cancelled ones are skipped once they get to the head
+    private final Queue<Ticket> line = new ArrayDeque<>();
+
+    // The continuations yet to be run by the current thread, null unless it is running one already
+    private final ThreadLocal<Queue<Runnable>> pending = new ThreadLocal<>();
+
+    public AsyncToilet() {
+        this(null);
+    }
+
+    /**
+     * @param executor runs the continuations, null if the leaving thread should
+     */
+    public AsyncToilet(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Takes a place in the line, never waits.
+     *
+     * @return a ticket which is done once the toilet has been entered
+     */
+    public Ticket enterAsync() {
+        Ticket ticket = new Ticket(this);
+        lock.lock();
+        try {
+            if (occupied) {
+                line.add(ticket);
+                return ticket;
+            }
+            occupied = true;
+            ticket.admit();     // nothing to run yet, the continuation hasn't been registered
+        } finally {
+            lock.unlock();
+        }
+        return ticket;
+    }
+
+    @Override
+    public boolean enter() {
+        enterAsync().awaitUninterruptibly();
+        return isOccupied();
+    }
+
+    @Override
+    public boolean tryEnter() {
+        lock.lock();
+        try {
+            if (occupied) {
+                return false;
+            }
+            occupied = true;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean tryEnter(long timeout, TimeUnit unit) throws InterruptedException {
+        return await(enterAsync(), true, unit.toNanos(timeout));
+    }
+
+    @Override
+    public boolean enterInterruptibly() throws InterruptedException {
+        return await(enterAsync(), false, 0);
+    }
+
+    private boolean await(Ticket ticket, boolean timed, long nanos) throws InterruptedException {
+        try {
+            if (!timed) {
+                ticket.get();
+                return true;
+            }
+            if (ticket.await(nanos)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            if (leaveLine(ticket)) {
+                throw e;
+            }
+            // Admitted in the meantime, the toilet is taken and the interruption is kept for later
+            Thread.currentThread().interrupt();
+            return true;
+        }
+        // Too late to give up if admitted in the meantime
+        return !leaveLine(ticket);
+    }
+
+    // Returns false if the ticket has been admitted already
+    boolean leaveLine(Ticket ticket) {
+        lock.lock();
+        try {
+            return ticket.cancelWaiting();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Leaves the toilet, or rather hands it over to the next ticket in line.
+     *
+     * @throws IllegalMonitorStateException if the toilet is vacant
+     */
+    @Override
+    public void quit() {
+        Runnable continuation = null;
+        lock.lock();
+        try {
+            if (!occupied) {
+                throw new IllegalMonitorStateException("The toilet is vacant!");
+            }
+            Ticket next;
+            while ((next = line.poll()) != null && !next.isWaiting())
+                ;   // skip the cancelled ones
+            if (next == null) {
+                occupied = false;
+            } else {
+                continuation = next.admit();    // the toilet stays occupied, by the next visitor
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (continuation != null) {
+            dispatch(continuation);
+        }
+    }
+
+    @Override
+    public boolean isOccupied() {
+        return occupied;
+    }
+
+    /**
+     * @return the number of the tickets in line, including the cancelled ones not yet skipped
+     */
+    public int getLineLength() {
+        lock.lock();
+        try {
+            return line.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch(Runnable continuation) {
+        if (executor != null) {
+            try {
+                executor.execute(continuation);
+                return;
+            } catch (RejectedExecutionException e) {
+                // The admitted visitor is inside already, run the continuation right here
+            }
+        }
+        Queue<Runnable> queue = pending.get();
+        if (queue != null) {
+            queue.add(continuation);    // called from within a continuation, it's run once that one is done
+            return;
+        }
+        queue = new ArrayDeque<>();
+        pending.set(queue);
+        RuntimeException failure = null;
+        try {
+            for (Runnable next = continuation; next != null; next = queue.poll()) {
+                try {
+                    next.run();
+                } catch (RuntimeException e) {
+                    // The others mustn't be left waiting, the first failure is reported once they are done
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+        } finally {
+            pending.remove();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package org.zezutom.concurrencypatterns.monitorobject;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author Tomas Zezula
+ *
+ * A restroom of N stalls, guarded by a monitor. Up to N visitors are inside at the same time,
+ * the monitor lock is only ever held for the bookkeeping, never while a stall is being used.
+ *
+ * - A vacant stall is taken by a CAS on the number of the vacant stalls, no lock involved
+ * - Otherwise the visitor waits in line, on a condition of its own
+ * - A leaving visitor hands the stalls over to the visitors at the head of the line and wakes up only them
+ *
+ * Each thread's stalls are accounted for, no one can leave a stall which isn't theirs.
+ * The debug mode keeps checking the invariants and floods the restroom as soon as any of them breaks.
+ */
+public class CleanRestroom implements Restroom {
+
+    private final int capacity;
+
+    private final AdmissionMode mode;
+
+    private final boolean debug;
+
+    // The guarded object's state
+    private final AtomicInteger vacant;
+
+    // The number of the visitors who have started queuing, checked before going for the lock
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    // Monitor Lock, only guards the line of the waiting visitors
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // The waiting visitors in the order of their arrival
+    private final Queue<Visitor> line = new ArrayDeque<>();
+
+    // The stalls held by the current thread
+    private final ThreadLocal<int[]> held = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    public CleanRestroom(int capacity) {
+        this(capacity, AdmissionMode.FAIR);
+    }
+
+    public CleanRestroom(int capacity, AdmissionMode mode) {
+        this(capacity, mode, false);
+    }
+
+    /**
+     * @param capacity  the number of stalls
+     * @param mode      who gets a vacant stall
+     * @param debug     if true, the invariants are checked on each call, see ToiletFloodedException
+     */
+    public CleanRestroom(int capacity, AdmissionMode mode, boolean debug) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        if (mode == null) {
+            throw new IllegalArgumentException("The admission mode is required!");
+        }
+        this.capacity = capacity;
+        this.mode = mode;
+        this.debug = debug;
+        this.vacant = new AtomicInteger(capacity);
+    }
+
+    @Override
+    public boolean enter() {
+        return enter(1);
+    }
+
+    @Override
+    public boolean enter(int stalls) {
+        try {
+            return acquire(stalls, false, false, 0);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException("An uninterruptible wait was interrupted!");
+        }
+    }
+
+    @Override
+    public boolean tryEnter() {
+        return tryEnter(1);
+    }
+
+    @Override
+    public boolean tryEnter(int stalls) {
+        checkStalls(stalls);
+        if ((mode == AdmissionMode.BARGING || waiting.get() == 0) && tryTake(stalls)) {
+            admitted(stalls);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean tryEnter(long timeout, TimeUnit unit) throws InterruptedException {
+        return tryEnter(1, timeout, unit);
+    }
+
+    @Override
+    public boolean tryEnter(int stalls, long timeout, TimeUnit unit) throws InterruptedException {
+        return acquire(stalls, true, true, unit.toNanos(timeout));
+    }
+
+    @Override
+    public boolean enterInterruptibly() throws InterruptedException {
+        return acquire(1, true, false, 0);
+    }
+
+    private boolean acquire(int stalls, boolean interruptible, boolean timed, long nanos) throws InterruptedException {
+        if (interruptible && Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (tryEnter(stalls)) {
+            return true;
+        }
+        final long deadline = System.nanoTime() + nanos;
+
+        lock.lock();
+        try {
+            // Announce the intention to wait first, then check again. Any visitor leaving from now on sees the line.
+            waiting.incrementAndGet();
+            if ((mode == AdmissionMode.BARGING || line.isEmpty()) && tryTake(stalls)) {
+                waiting.decrementAndGet();
+                admitted(stalls);
+                return true;
+            }
+            Visitor visitor = new Visitor(stalls, lock.newCondition());
+            line.add(visitor);
+            boolean interrupted = false;
+            while (!visitor.admitted) {
+                if (timed) {
+                    nanos = deadline - System.nanoTime();
+                    if (nanos <= 0) {
+                        leaveLine(visitor);
+                        return false;
+                    }
+                }
+                try {
+                    if (!interruptible) {
+                        visitor.turn.awaitUninterruptibly();
+                    } else if (timed) {
+                        visitor.turn.awaitNanos(nanos);
+                    } else {
+                        visitor.turn.await();
+                    }
+                } catch (InterruptedException e) {
+                    if (!visitor.admitted) {
+                        leaveLine(visitor);
+                        throw e;
+                    }
+                    // Admitted in the meantime, the stalls are taken and the interruption is kept for later
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            lock.unlock();
+        }
+        admitted(stalls);
+        return true;
+    }
+
+    // Gives up waiting, the visitors behind might fit in now. Only called under the lock.
+    private void leaveLine(Visitor visitor) {
+        line.remove(visitor);
+        waiting.decrementAndGet();
+        admitLocked();
+    }
+
+    @Override
+    public void quit() {
+        quit(1);
+    }
+
+    @Override
+    public void quit(int stalls) {
+        checkStalls(stalls);
+        int[] count = held.get();
+        if (count[0] < stalls) {
+            throw new IllegalMonitorStateException("The stalls are not held by the current thread!");
+        }
+        count[0] -= stalls;
+
+        vacant.addAndGet(stalls);
+        if (waiting.get() > 0) {
+            admitWaiting();
+        }
+        checkInvariants();
+    }
+
+    /**
+     * @return true if all of the stalls are taken
+     */
+    @Override
+    public boolean isOccupied() {
+        checkInvariants();
+        return vacant.get() <= 0;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public int getOccupancy() {
+        return capacity - vacant.get();
+    }
+
+    private boolean tryTake(int stalls) {
+        while (true) {
+            int current = vacant.get();
+            if (current < stalls) {
+                return false;
+            }
+            if (vacant.compareAndSet(current, current - stalls)) {
+                return true;
+            }
+        }
+    }
+
+    // Hands the vacant stalls over to the visitors at the head of the line, in order
+    private void admitWaiting() {
+        lock.lock();
+        try {
+            admitLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void admitLocked() {
+        Visitor next;
+        while ((next = line.peek()) != null && tryTake(next.stalls)) {
+            line.remove();
+            waiting.decrementAndGet();
+            next.admitted = true;
+            next.turn.signal();
+        }
+    }
+
+    private void admitted(int stalls) {
+        held.get()[0] += stalls;
+        checkInvariants();
+    }
+
+    private void checkStalls(int stalls) {
+        if (stalls < 1 || stalls > capacity) {
+            throw new IllegalArgumentException("Invalid number of stalls: " + stalls);
+        }
+    }
+
+    private void checkInvariants() {
+        if (debug) {
+            int current = vacant.get();
+            if (current < 0 || current > capacity) {
+                throw new ToiletFloodedException();
+            }
+        }
+    }
+
+    // A waiting visitor, only accessed under the lock
+    private static class Visitor {
+
+        private final int stalls;
+
+        private final Condition turn;
+
+        private boolean admitted;
+
+        private Visitor(int stalls, Condition turn) {
+            this.stalls = stalls;
+            this.turn = turn;
+        }
+    }
+}
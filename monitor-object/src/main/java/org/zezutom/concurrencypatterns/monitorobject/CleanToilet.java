@@ -1,14 +1,29 @@
 package org.zezutom.concurrencypatterns.monitorobject;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author Tomas Zezula
  * Date: 27/07/2014
+ *
+ * The toilet is fair by default, see Fairness for the alternatives.
+ *
+ * The contention is instrumented, see getStats(). Everything is recorded under the monitor lock,
+ * which is held anyway, so there are no atomics and no allocations involved. The waiters and the signals
+ * are always counted, the timing costs a few clock reads per visit and can be switched off.
+ *
+ * To watch the toilet in a JMX console, see register(String).
  */
 public class CleanToilet implements Toilet {
 
+    // How long a visitor may wait before the toilet is kept for them, unless told otherwise
+    public static final long DEFAULT_STARVATION_THRESHOLD_MILLIS = 50;
+
     // Monitor Lock used by the synchronized methods
     private final ReentrantLock lock;
 
@@ -18,24 +33,160 @@ public class CleanToilet implements Toilet {
     // The guarded object's state - the 'volatile' flag is crucial for the signaling to work
     private volatile int counter;
 
+    private final Fairness fairness;
+
+    private final long starvationThresholdNanos;
+
+    // A visitor who has waited for too long, the toilet is kept for them. Only accessed under the lock.
+    private Thread starving;
+
+    // Whether the wait and hold times are recorded
+    private volatile boolean instrumented = true;
+
+    // Instrumentation, only accessed under the lock
+    private final Histogram waitTime = new Histogram();
+
+    private final Histogram holdTime = new Histogram();
+
+    private int waiters;
+
+    private int peakWaiters;
+
+    private long signalCount;
+
+    // When the current visitor entered, zero if not timed
+    private long enteredAt;
+
     public CleanToilet() {
-        lock = new ReentrantLock(true);
+        this(Fairness.FAIR);
+    }
+
+    public CleanToilet(Fairness fairness) {
+        this(fairness, DEFAULT_STARVATION_THRESHOLD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param fairness              who is the next to enter
+     * @param starvationThreshold   only applies to BOUNDED_UNFAIR, see Fairness
+     * @param unit                  the unit of the threshold
+     */
+    public CleanToilet(Fairness fairness, long starvationThreshold, TimeUnit unit) {
+        if (fairness == null) {
+            throw new IllegalArgumentException("The fairness is required!");
+        }
+        if (starvationThreshold < 0) {
+            throw new IllegalArgumentException("Invalid starvation threshold: " + starvationThreshold);
+        }
+        this.fairness = fairness;
+        this.starvationThresholdNanos = unit.toNanos(starvationThreshold);
+        lock = new ReentrantLock(fairness == Fairness.FAIR);
         oneAtATimeCondition = lock.newCondition();
     }
 
     @Override
     public boolean enter() {
-        lock.lock();
         try {
-            while (counter > 0) {   // wait while the toilet is being used
-                oneAtATimeCondition.awaitUninterruptibly();
-            }
+            return acquire(false, false, 0);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException("An uninterruptible wait was interrupted!");
+        }
+    }
 
-            if (++counter == 1) {
-                oneAtATimeCondition.signal();   // the toilet has been successfully acquired
+    @Override
+    public boolean tryEnter() {
+        // Barges in even though the lock might be fair, there is no point in queuing for a quick look
+        final boolean timing = instrumented;
+        final long arrival = timing ? System.nanoTime() : 0;
+        if (!lock.tryLock()) {
+            return false;
+        }
+        try {
+            if (counter > 0 || starving != null) {
+                return false;
             }
+            return occupy(arrival, timing);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean tryEnter(long timeout, TimeUnit unit) throws InterruptedException {
+        return acquire(true, true, unit.toNanos(timeout));
+    }
+
+    @Override
+    public boolean enterInterruptibly() throws InterruptedException {
+        return acquire(true, false, 0);
+    }
+
+    public Fairness getFairness() {
+        return fairness;
+    }
 
-            return isOccupied();
+    private boolean acquire(boolean interruptible, boolean timed, long nanos) throws InterruptedException {
+        final boolean timing = instrumented;
+        // The clock is only read if anyone needs it: the stats, the timeout or the starvation threshold
+        final long arrival = (timing || timed || fairness == Fairness.BOUNDED_UNFAIR) ? System.nanoTime() : 0;
+        final long deadline = arrival + nanos;
+        if (!interruptible) {
+            lock.lock();
+        } else if (!timed) {
+            lock.lockInterruptibly();
+        } else if (!lock.tryLock(nanos, TimeUnit.NANOSECONDS)) {
+            return false;
+        }
+        try {
+            final Thread current = Thread.currentThread();
+            boolean interrupted = false;
+            boolean waited = false;
+
+            // wait while the toilet is being used, or kept for someone who has waited for too long
+            while (counter > 0 || (starving != null && starving != current)) {
+                if (!waited) {
+                    waited = true;
+                    if (++waiters > peakWaiters) {
+                        peakWaiters = waiters;
+                    }
+                }
+                long wait = -1;     // no timeout
+                if (timed) {
+                    wait = deadline - System.nanoTime();
+                    if (wait <= 0) {
+                        waiters--;
+                        giveUp(current);
+                        return false;
+                    }
+                }
+                if (fairness == Fairness.BOUNDED_UNFAIR && starving == null) {
+                    long patience = arrival + starvationThresholdNanos - System.nanoTime();
+                    if (patience <= 0) {
+                        starving = current;     // nobody barges in from now on
+                        continue;
+                    }
+                    wait = (wait < 0) ? patience : Math.min(wait, patience);
+                }
+                try {
+                    awaitVacancy(wait, interruptible);
+                } catch (InterruptedException e) {
+                    if (interruptible) {
+                        waiters--;
+                        giveUp(current);
+                        throw e;
+                    }
+                    interrupted = true;
+                }
+            }
+            if (waited) {
+                waiters--;
+            }
+            if (starving == current) {
+                starving = null;
+            }
+            if (interrupted) {
+                current.interrupt();
+            }
+            return occupy(arrival, timing);
         } finally {
             lock.unlock();
         }
@@ -51,8 +202,12 @@ public class CleanToilet implements Toilet {
             }
 
             if(isOccupied()) {
+                if (enteredAt != 0) {
+                    holdTime.record(System.nanoTime() - enteredAt);
+                    enteredAt = 0;
+                }
                 if (--counter == 0) {
-                    oneAtATimeCondition.signal();   // the toilet is free to use from this point on
+                    signalVacancy();   // the toilet is free to use from this point on
                 }
             }
         } finally {
@@ -60,6 +215,58 @@ public class CleanToilet implements Toilet {
         }
     }
 
+    // Only called while holding the lock and with the toilet vacant
+    private boolean occupy(long arrival, boolean timing) {
+        if (++counter == 1) {
+            oneAtATimeCondition.signal();   // the toilet has been successfully acquired
+            signalCount++;
+        }
+        if (timing) {
+            enteredAt = System.nanoTime();
+            waitTime.record(enteredAt - arrival);
+        }
+        return isOccupied();
+    }
+
+    // Waits for a signal, a negative timeout means no timeout at all
+    private void awaitVacancy(long nanos, boolean interruptible) throws InterruptedException {
+        if (nanos < 0 && !interruptible) {
+            oneAtATimeCondition.awaitUninterruptibly();
+            return;
+        }
+        try {
+            if (nanos < 0) {
+                oneAtATimeCondition.await();
+            } else {
+                oneAtATimeCondition.awaitNanos(nanos);
+            }
+        } catch (InterruptedException e) {
+            // The signal might have been meant for this very thread, pass it on so that it doesn't get lost
+            signalVacancy();
+            throw e;
+        }
+    }
+
+    // A single visitor is woken up, unless the toilet is kept for a particular one
+    private void signalVacancy() {
+        if (starving != null) {
+            oneAtATimeCondition.signalAll();
+        } else {
+            oneAtATimeCondition.signal();
+        }
+        signalCount++;
+    }
+
+    // Stops waiting, whoever is next mustn't miss their turn
+    private void giveUp(Thread current) {
+        if (starving == current) {
+            starving = null;
+        }
+        if (counter == 0) {
+            signalVacancy();
+        }
+    }
+
     @Override
     public boolean isOccupied() {
         if (counter < 0 || counter > 1) {
@@ -67,4 +274,55 @@ public class CleanToilet implements Toilet {
         }
         return counter > 0;
     }
+
+    /**
+     * @return a consistent snapshot of the instrumentation
+     */
+    public ToiletStats getStats() {
+        lock.lock();
+        try {
+            return new ToiletStats(waitTime, holdTime, waiters, peakWaiters, signalCount);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void resetStats() {
+        lock.lock();
+        try {
+            waitTime.reset();
+            holdTime.reset();
+            peakWaiters = waiters;
+            signalCount = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registers the toilet with the platform MBean server, so that it can be watched in a JMX console.
+     * The attributes are served by an adapter, see ToiletStatsAdapter, the toilet itself is left as it is.
+     *
+     * @param name  distinguishes the toilet from the others
+     * @return the name the toilet was registered under, needed to unregister it
+     */
+    public ObjectName register(String name) {
+        try {
+            ObjectName objectName = new ObjectName(
+                    "org.zezutom.concurrencypatterns.monitorobject:type=CleanToilet,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new ToiletStatsAdapter(this), objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("The toilet could not be registered as " + name + "!", e);
+        }
+    }
+
+    public boolean isInstrumented() {
+        return instrumented;
+    }
+
+    // Switching the timing off doesn't clear what has been recorded so far
+    public void setInstrumented(boolean instrumented) {
+        this.instrumented = instrumented;
+    }
 }
@@ -0,0 +1,17 @@
+package org.zezutom.concurrencypatterns.monitorobject;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Decides who is the next to enter an occupied toilet:
+ *
+ * FAIR             - the visitors take turns in the order of their arrival. Nobody starves, but each hand-over
+ *                    costs a context switch, which cuts the throughput under contention.
+ * UNFAIR           - whoever comes at the right moment gets in, even ahead of those already waiting.
+ *                    The best throughput, but an unlucky visitor may wait for a very long time.
+ * BOUNDED_UNFAIR   - unfair, until a visitor has waited longer than the starvation threshold.
+ *                    The toilet is then kept for that visitor, newcomers have to wait.
+ */
+public enum Fairness {
+    FAIR, UNFAIR, BOUNDED_UNFAIR
+}
@@ -1,5 +1,7 @@
 package org.zezutom.concurrencypatterns.monitorobject;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author Tomas Zezula
  * Date: 27/07/2014
@@ -17,6 +19,25 @@ public class FilthyToilet implements Toilet {
         return isOccupied();
     }
 
+    // Never waits anyway
+    @Override
+    public boolean tryEnter() {
+        return enter();
+    }
+
+    @Override
+    public boolean tryEnter(long timeout, TimeUnit unit) throws InterruptedException {
+        return enterInterruptibly();
+    }
+
+    @Override
+    public boolean enterInterruptibly() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        return enter();
+    }
+
     @Override
     public void quit() {
         counter--;
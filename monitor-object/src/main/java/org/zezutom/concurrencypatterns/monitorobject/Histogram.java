@@ -0,0 +1,98 @@
+package org.zezutom.concurrencypatterns.monitorobject;
+
+/**
+ * @author Tomas Zezula
+ *
+ * A histogram of durations in nanoseconds, with power of two buckets. Bucket 0 holds zero,
+ * bucket i holds the durations from 2^(i-1) up to 2^i - 1. The precision is coarse, but recording
+ * a duration is a couple of arithmetic operations and never allocates.
+ *
+ * Not thread-safe, the owner guards it.
+ */
+public class Histogram {
+
+    public static final int BUCKETS = 64;
+
+    private final long[] buckets = new long[BUCKETS];
+
+    private long count;
+
+    private long sum;
+
+    private long max;
+
+    public Histogram() {
+    }
+
+    // A copy of the other histogram
+    public Histogram(Histogram other) {
+        System.arraycopy(other.buckets, 0, buckets, 0, BUCKETS);
+        count = other.count;
+        sum = other.sum;
+        max = other.max;
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;      // the clock is monotonic, but better safe than sorry
+        }
+        buckets[Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(nanos))]++;
+        count++;
+        sum += nanos;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = 0;
+        }
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMean() {
+        return (count == 0) ? 0 : sum / count;
+    }
+
+    public long getBucketCount(int bucket) {
+        return buckets[bucket];
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the upper bound of the bucket the percentile falls into, never more than the maximum
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Invalid percentile: " + percentile);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return (i == 0) ? 0 : Math.min(max, (1L << i) - 1);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + ", mean=" + getMean() + ", p99=" + getPercentile(99) + ", max=" + max;
+    }
+}
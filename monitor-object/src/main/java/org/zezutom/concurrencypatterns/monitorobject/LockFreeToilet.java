@@ -0,0 +1,154 @@
+package org.zezutom.concurrencypatterns.monitorobject;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author Tomas Zezula
+ *
+ * A toilet without a monitor lock. The whole state is a single word, entering and leaving
+ * a vacant toilet costs a single CAS each:
+ *
+ * - enter: a CAS from vacant to occupied, nothing else unless the toilet is occupied
+ * - otherwise the visitor spins for a while, hoping the toilet gets vacant soon
+ * - then it joins a lock-free line of waiting visitors and parks, the visitor at the head of the line gets woken up
+ * - quit: the toilet is marked vacant, then the head of the line (if any) is woken up
+ *
+ * The line is FIFO, but newcomers may barge in before the woken up visitor gets the chance to enter.
+ */
+public class LockFreeToilet implements Toilet {
+
+    private static final AtomicIntegerFieldUpdater<LockFreeToilet> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(LockFreeToilet.class, "state");
+
+    private static final int VACANT = 0;
+
+    private static final int OCCUPIED = 1;
+
+    // The number of attempts before a visitor gives up spinning
+    public static final int DEFAULT_SPIN_LIMIT = 100;
+
+    private final int spinLimit;
+
+    // The guarded object's state
+    private volatile int state = VACANT;
+
+    // The parked visitors in the order of their arrival
+    private final Queue<Thread> line = new ConcurrentLinkedQueue<>();
+
+    public LockFreeToilet() {
+        this(DEFAULT_SPIN_LIMIT);
+    }
+
+    /**
+     * @param spinLimit the number of attempts before a visitor parks, zero parks straight away
+     */
+    public LockFreeToilet(int spinLimit) {
+        if (spinLimit < 0) {
+            throw new IllegalArgumentException("Invalid spin limit: " + spinLimit);
+        }
+        this.spinLimit = spinLimit;
+    }
+
+    @Override
+    public boolean enter() {
+        try {
+            return acquire(false, false, 0);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException("An uninterruptible wait was interrupted!");
+        }
+    }
+
+    @Override
+    public boolean tryEnter() {
+        return STATE.compareAndSet(this, VACANT, OCCUPIED);
+    }
+
+    @Override
+    public boolean tryEnter(long timeout, TimeUnit unit) throws InterruptedException {
+        return acquire(true, true, unit.toNanos(timeout));
+    }
+
+    @Override
+    public boolean enterInterruptibly() throws InterruptedException {
+        return acquire(true, false, 0);
+    }
+
+    @Override
+    public void quit() {
+        if (!STATE.compareAndSet(this, OCCUPIED, VACANT)) {
+            throw new IllegalMonitorStateException("The toilet is vacant!");
+        }
+        wakeUpNext();
+    }
+
+    @Override
+    public boolean isOccupied() {
+        int current = state;
+        if (current != VACANT && current != OCCUPIED) {
+            throw new ToiletFloodedException();
+        }
+        return current == OCCUPIED;
+    }
+
+    private boolean acquire(boolean interruptible, boolean timed, long nanos) throws InterruptedException {
+        if (interruptible && Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        // The fast path, then a bounded spin
+        for (int i = 0; i <= spinLimit; i++) {
+            if (state == VACANT && tryEnter()) {
+                return true;
+            }
+        }
+
+        final long deadline = System.nanoTime() + nanos;
+        final Thread current = Thread.currentThread();
+        boolean interrupted = false;
+        line.add(current);
+
+        // Only the head of the line competes for the toilet, the others keep parking
+        while (line.peek() != current || !tryEnter()) {
+            if (timed) {
+                nanos = deadline - System.nanoTime();
+                if (nanos <= 0) {
+                    leaveLine(current);
+                    return false;
+                }
+                LockSupport.parkNanos(this, nanos);
+            } else {
+                LockSupport.park(this);
+            }
+            if (Thread.interrupted()) {
+                if (interruptible) {
+                    leaveLine(current);
+                    throw new InterruptedException();
+                }
+                interrupted = true;
+            }
+        }
+        line.remove();
+        if (interrupted) {
+            current.interrupt();
+        }
+        return true;
+    }
+
+    // Gives up waiting. Had the visitor been the head of the line, the wake-up is passed on.
+    private void leaveLine(Thread current) {
+        line.remove(current);
+        if (state == VACANT) {
+            wakeUpNext();
+        }
+    }
+
+    private void wakeUpNext() {
+        Thread next = line.peek();
+        if (next != null) {
+            LockSupport.unpark(next);
+        }
+    }
+}
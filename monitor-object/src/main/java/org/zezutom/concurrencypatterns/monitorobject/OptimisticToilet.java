@@ -0,0 +1,198 @@
+package org.zezutom.concurrencypatterns.monitorobject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author Tomas Zezula
+ *
+ * A toilet for the curious. The visitors are admitted by a monitor, just like in CleanToilet, but whoever
+ * only asks questions (is it occupied? by whom? for how long?) never touches the lock:
+ *
+ * - each change of the state is wrapped by two increments of a version, odd means a change is in progress
+ * - a reader remembers the version, reads the state and checks the version hasn't moved in the meantime
+ * - if it has, the reader tries again, it never blocks the visitors
+ *
+ * Readers only ever read, so however many of them keep polling, they don't steal the cache line from the visitors.
+ */
+public class OptimisticToilet implements Toilet {
+
+    // The number of failed reads before a reader lets the writer run
+    private static final int SPINS_BEFORE_YIELD = 64;
+
+    // Monitor Lock, serializes the visitors
+    private final ReentrantLock lock;
+
+    // Monitor Condition - the toilet can only be used by a single person at a time
+    private final Condition vacancy;
+
+    // Odd while the state is being changed
+    private volatile int version;
+
+    // The guarded object's state, only changed under the lock
+    private volatile int counter;
+
+    private volatile Thread occupant;
+
+    private volatile long enteredAt;
+
+    public OptimisticToilet() {
+        this(true);
+    }
+
+    /**
+     * @param fair whether the visitors enter in the order of their arrival
+     */
+    public OptimisticToilet(boolean fair) {
+        lock = new ReentrantLock(fair);
+        vacancy = lock.newCondition();
+    }
+
+    @Override
+    public boolean enter() {
+        try {
+            return acquire(false, false, 0);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException("An uninterruptible wait was interrupted!");
+        }
+    }
+
+    @Override
+    public boolean tryEnter() {
+        if (counter > 0 || !lock.tryLock()) {
+            return false;
+        }
+        try {
+            return counter == 0 && occupy();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean tryEnter(long timeout, TimeUnit unit) throws InterruptedException {
+        return acquire(true, true, unit.toNanos(timeout));
+    }
+
+    @Override
+    public boolean enterInterruptibly() throws InterruptedException {
+        return acquire(true, false, 0);
+    }
+
+    private boolean acquire(boolean interruptible, boolean timed, long nanos) throws InterruptedException {
+        final long deadline = System.nanoTime() + nanos;
+        if (!interruptible) {
+            lock.lock();
+        } else if (!timed) {
+            lock.lockInterruptibly();
+        } else if (!lock.tryLock(nanos, TimeUnit.NANOSECONDS)) {
+            return false;
+        }
+        try {
+            while (counter > 0) {   // wait while the toilet is being used
+                try {
+                    if (!interruptible) {
+                        vacancy.awaitUninterruptibly();
+                    } else if (!timed) {
+                        vacancy.await();
+                    } else {
+                        nanos = deadline - System.nanoTime();
+                        if (nanos <= 0) {
+                            return false;
+                        }
+                        vacancy.awaitNanos(nanos);
+                    }
+                } catch (InterruptedException e) {
+                    // The signal might have been meant for this very thread, pass it on so that it doesn't get lost
+                    if (counter == 0) {
+                        vacancy.signal();
+                    }
+                    throw e;
+                }
+            }
+            return occupy();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void quit() {
+        lock.lock();
+        try {
+            if (counter <= 0) {
+                throw new IllegalMonitorStateException("The toilet is vacant!");
+            }
+            version++;
+            counter--;
+            occupant = null;
+            enteredAt = 0;
+            version++;
+            vacancy.signal();   // the toilet is free to use from this point on
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Only called while holding the lock and with the toilet vacant
+    private boolean occupy() {
+        version++;
+        counter++;
+        occupant = Thread.currentThread();
+        enteredAt = System.nanoTime();
+        version++;
+        return true;
+    }
+
+    @Override
+    public boolean isOccupied() {
+        for (int attempt = 1; ; attempt++) {
+            int before = version;
+            int current = counter;
+            if ((before & 1) == 0 && version == before) {
+                if (current < 0 || current > 1) {
+                    throw new ToiletFloodedException();
+                }
+                return current > 0;
+            }
+            backOff(attempt);
+        }
+    }
+
+    /**
+     * @return the visitor inside, or null if the toilet is vacant
+     */
+    public Thread getOccupant() {
+        for (int attempt = 1; ; attempt++) {
+            int before = version;
+            Thread current = occupant;
+            if ((before & 1) == 0 && version == before) {
+                return current;
+            }
+            backOff(attempt);
+        }
+    }
+
+    /**
+     * @return how long the current visitor has been inside, zero if the toilet is vacant
+     */
+    public long getOccupiedNanos() {
+        for (int attempt = 1; ; attempt++) {
+            int before = version;
+            int current = counter;
+            long since = enteredAt;
+            if ((before & 1) == 0 && version == before) {
+                return (current > 0) ? System.nanoTime() - since : 0;
+            }
+            backOff(attempt);
+        }
+    }
+
+    // A writer is in the middle of a change, which takes no time at all unless it has been descheduled
+    private static void backOff(int attempt) {
+        if (attempt % SPINS_BEFORE_YIELD == 0) {
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.zezutom.concurrencypatterns.monitorobject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Tomas Zezula
+ *
+ * A toilet with a number of stalls, each of which can be used by a single person at a time.
+ * The inherited methods take a single stall, isOccupied() tells whether all of the stalls are taken.
+ */
+public interface Restroom extends Toilet {
+
+    /**
+     * Waits until the given number of stalls is vacant and takes them all at once.
+     *
+     * @param stalls the number of stalls to take
+     * @return true once the stalls have been taken
+     */
+    boolean enter(int stalls);
+
+    /**
+     * Takes the given number of stalls unless they are taken, never waits.
+     *
+     * @param stalls the number of stalls to take
+     * @return true if the stalls have been taken
+     */
+    boolean tryEnter(int stalls);
+
+    /**
+     * Waits until the given number of stalls is vacant, but gives up once the timeout elapses.
+     *
+     * @param stalls    the number of stalls to take
+     * @param timeout   the longest time to wait
+     * @param unit      the unit of the timeout
+     * @return true if the stalls have been taken, false if the time ran out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean tryEnter(int stalls, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Leaves the given number of stalls, the current thread must be holding them.
+     *
+     * @param stalls the number of stalls to leave
+     */
+    void quit(int stalls);
+
+    int getCapacity();
+
+    /**
+     * @return the number of stalls currently taken
+     */
+    int getOccupancy();
+}
@@ -0,0 +1,160 @@
+package org.zezutom.concurrencypatterns.monitorobject;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @author Tomas Zezula
+ *
+ * A place in the line of an AsyncToilet. The ticket is done once its holder has been admitted,
+ * from then on the holder is inside and has to quit the toilet sooner or later.
+ *
+ * Whoever doesn't want to block registers a continuation instead, see whenAdmitted(Runnable).
+ * A ticket can be cancelled as long as it's waiting, an admitted one can't.
+ */
+public class Ticket implements Future<Toilet> {
+
+    private static final int WAITING = 0;
+
+    private static final int ADMITTED = 1;
+
+    private static final int CANCELLED = 2;
+
+    private final AsyncToilet toilet;
+
+    // Only changed while holding the ticket's own monitor
+    private volatile int state = WAITING;
+
+    // Run once admitted, at most one per ticket
+    private Runnable continuation;
+
+    private boolean registered;
+
+    Ticket(AsyncToilet toilet) {
+        this.toilet = toilet;
+    }
+
+    /**
+     * Registers what to do once admitted. If the ticket has been admitted already, the continuation runs straight away
+     * in the calling thread. Otherwise it runs in the thread which has left the toilet, or in the toilet's executor.
+     *
+     * @param continuation runs inside the toilet, it's up to the continuation to quit it
+     * @throws IllegalStateException if a continuation has been registered already, or the ticket has been cancelled
+     */
+    public void whenAdmitted(Runnable continuation) {
+        if (continuation == null) {
+            throw new IllegalArgumentException("The continuation is required!");
+        }
+        synchronized (this) {
+            if (registered) {
+                throw new IllegalStateException("A continuation has been registered already!");
+            }
+            if (state == CANCELLED) {
+                throw new IllegalStateException("The ticket has been cancelled!");
+            }
+            registered = true;
+            if (state == WAITING) {
+                this.continuation = continuation;
+                return;
+            }
+        }
+        continuation.run();
+    }
+
+    /**
+     * Gives up the place in the line.
+     *
+     * @return true if the ticket has been cancelled, false if it has been admitted already
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return toilet.leaveLine(this);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    @Override
+    public boolean isDone() {
+        return state != WAITING;
+    }
+
+    @Override
+    public synchronized Toilet get() throws InterruptedException {
+        while (state == WAITING) {
+            wait();
+        }
+        return result();
+    }
+
+    @Override
+    public synchronized Toilet get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        if (!await(unit.toNanos(timeout))) {
+            throw new TimeoutException();
+        }
+        return result();
+    }
+
+    // Waits without being interrupted, the interruption is kept for later
+    synchronized void awaitUninterruptibly() {
+        boolean interrupted = false;
+        while (state == WAITING) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Returns false if still waiting once the time is up
+    synchronized boolean await(long nanos) throws InterruptedException {
+        final long deadline = System.nanoTime() + nanos;
+        while (state == WAITING) {
+            if (nanos <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, nanos);
+            nanos = deadline - System.nanoTime();
+        }
+        return true;
+    }
+
+    // Only called by the toilet, while holding its lock. Returns the continuation to run, if any.
+    synchronized Runnable admit() {
+        state = ADMITTED;
+        notifyAll();
+        Runnable next = continuation;
+        continuation = null;
+        return next;
+    }
+
+    // Only called by the toilet, while holding its lock
+    synchronized boolean cancelWaiting() {
+        if (state != WAITING) {
+            return false;
+        }
+        state = CANCELLED;
+        continuation = null;
+        notifyAll();
+        return true;
+    }
+
+    boolean isWaiting() {
+        return state == WAITING;
+    }
+
+    private Toilet result() {
+        if (state == CANCELLED) {
+            throw new CancellationException();
+        }
+        return toilet;
+    }
+}
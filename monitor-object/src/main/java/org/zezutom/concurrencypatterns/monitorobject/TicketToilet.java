@@ -0,0 +1,213 @@
+package org.zezutom.concurrencypatterns.monitorobject;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author Tomas Zezula
+ *
+ * A toilet run like a deli counter. Each visitor draws a number and waits until it's being served:
+ *
+ * - enter: a single atomic increment draws the next ticket, the visitor is in once its ticket is being served
+ * - quit: the next ticket is being served, a plain volatile write since only the visitor inside ever moves it
+ * - strictly FIFO, nobody barges in, and yet there is no lock, no condition and no line of waiting threads
+ *
+ * A waiting visitor backs off in proportion to its distance to the head of the line, the further it is
+ * the less often it looks. After a number of rounds it may park rather than spin, see the constructor.
+ *
+ * A visitor who gives up waiting can't take its ticket back. It is marked as abandoned instead,
+ * and skipped by whoever leaves the toilet once its turn comes.
+ */
+public class TicketToilet implements Toilet {
+
+    private static final AtomicLongFieldUpdater<NextTicket> NEXT_TICKET =
+            AtomicLongFieldUpdater.newUpdater(NextTicket.class, "nextTicket");
+
+    // How long a visitor backs off per visitor ahead of them
+    public static final long DEFAULT_BACKOFF_NANOS = 50;
+
+    // The number of back-off rounds before a visitor parks
+    public static final int DEFAULT_PARK_AFTER_SPINS = 100;
+
+    // The visitors spin forever
+    public static final int NEVER_PARK = 0;
+
+    private final long backoffNanos;
+
+    private final int parkAfterSpins;
+
+    // The two counters, see Turns
+    private final Turns turns = new Turns();
+
+    // The tickets given up on, see abandon(long)
+    private final Set<Long> abandoned = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+    // Checked first, so that leaving the toilet only looks for abandoned tickets if there are any
+    private final AtomicInteger abandonedCount = new AtomicInteger();
+
+    public TicketToilet() {
+        this(DEFAULT_BACKOFF_NANOS, DEFAULT_PARK_AFTER_SPINS);
+    }
+
+    /**
+     * @param backoffNanos      how long a visitor backs off per visitor ahead of them, zero keeps looking
+     * @param parkAfterSpins    the number of back-off rounds before parking, NEVER_PARK spins forever
+     */
+    public TicketToilet(long backoffNanos, int parkAfterSpins) {
+        if (backoffNanos < 0) {
+            throw new IllegalArgumentException("Invalid back-off: " + backoffNanos);
+        }
+        if (parkAfterSpins < 0) {
+            throw new IllegalArgumentException("Invalid spin limit: " + parkAfterSpins);
+        }
+        this.backoffNanos = backoffNanos;
+        this.parkAfterSpins = parkAfterSpins;
+    }
+
+    @Override
+    public boolean enter() {
+        try {
+            return acquire(false, false, 0);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException("An uninterruptible wait was interrupted!");
+        }
+    }
+
+    @Override
+    public boolean tryEnter() {
+        // Only draws a ticket if it would be served straight away
+        long serving = turns.nowServing;
+        return turns.nextTicket == serving && NEXT_TICKET.compareAndSet(turns, serving, serving + 1);
+    }
+
+    @Override
+    public boolean tryEnter(long timeout, TimeUnit unit) throws InterruptedException {
+        return acquire(true, true, unit.toNanos(timeout));
+    }
+
+    @Override
+    public boolean enterInterruptibly() throws InterruptedException {
+        return acquire(true, false, 0);
+    }
+
+    private boolean acquire(boolean interruptible, boolean timed, long nanos) throws InterruptedException {
+        if (interruptible && Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        final long deadline = System.nanoTime() + nanos;
+        final long ticket = NEXT_TICKET.getAndIncrement(turns);
+        boolean interrupted = false;
+        long distance;
+        for (int round = 1; (distance = ticket - turns.nowServing) > 0; round++) {
+            if (timed && deadline - System.nanoTime() <= 0) {
+                abandon(ticket);
+                return false;
+            }
+            long pause = distance * backoffNanos;
+            if (parkAfterSpins != NEVER_PARK && round > parkAfterSpins) {
+                LockSupport.parkNanos(this, Math.max(pause, 1));
+            } else {
+                backOff(pause);
+            }
+            if (Thread.interrupted()) {
+                if (interruptible) {
+                    abandon(ticket);
+                    throw new InterruptedException();
+                }
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+
+    @Override
+    public void quit() {
+        long serving = turns.nowServing;
+        if (serving == turns.nextTicket) {
+            throw new IllegalMonitorStateException("The toilet is vacant!");
+        }
+        serve(serving + 1);
+    }
+
+    // Serves the ticket, or the first one after it which hasn't been abandoned
+    private void serve(long ticket) {
+        while (true) {
+            turns.nowServing = ticket;
+            if (abandonedCount.get() == 0 || !abandoned.remove(ticket)) {
+                return;
+            }
+            abandonedCount.decrementAndGet();
+            ticket++;
+        }
+    }
+
+    // Gives up the ticket. Whoever takes it out of the set of the abandoned ones serves the next ticket.
+    private void abandon(long ticket) {
+        abandonedCount.incrementAndGet();
+        abandoned.add(ticket);
+        // The visitor inside might have just left, without seeing the ticket has been abandoned
+        if (turns.nowServing == ticket && abandoned.remove(ticket)) {
+            abandonedCount.decrementAndGet();
+            serve(ticket + 1);
+        }
+    }
+
+    /**
+     * @return true if somebody is inside, or about to be
+     */
+    @Override
+    public boolean isOccupied() {
+        long serving = turns.nowServing;
+        long next = turns.nextTicket;
+        if (next < serving) {
+            throw new ToiletFloodedException();
+        }
+        return next > serving;
+    }
+
+    /**
+     * @return the number of the visitors waiting, including those who have given up but haven't been skipped yet
+     */
+    public int getLineLength() {
+        long serving = turns.nowServing;
+        return (int) Math.max(0, turns.nextTicket - serving - 1);
+    }
+
+    // Keeps away from the shared counters for a while, the clock is the only thing being read
+    private static void backOff(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        long until = System.nanoTime() + nanos;
+        while (System.nanoTime() < until)
+            ;   // busy
+    }
+
+    // The ticket drawn by the next visitor
+    private static class NextTicket {
+
+        volatile long nextTicket;
+    }
+
+    // Keeps the two counters on separate cache lines, the waiting visitors only ever read the latter. The JVM is free
+    // to reorder the fields of a single class, but it lays out the fields of a superclass first, hence the hierarchy.
+    @SuppressWarnings("unused")
+    private static class NextTicketPadding extends NextTicket {
+
+        private long p0, p1, p2, p3, p4, p5, p6;
+    }
+
+    // The ticket being served, only moved by the visitor inside
+    private static final class Turns extends NextTicketPadding {
+
+        volatile long nowServing;
+    }
+}
@@ -1,5 +1,7 @@
 package org.zezutom.concurrencypatterns.monitorobject;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author Tomas Zezula
  * Date: 27/07/2014
@@ -9,6 +11,31 @@ public interface Toilet {
 
     boolean enter();
 
+    /**
+     * Enters the toilet unless it is occupied, never waits.
+     *
+     * @return true if the toilet has been entered, false if it was occupied
+     */
+    boolean tryEnter();
+
+    /**
+     * Waits for the toilet to become vacant, but gives up once the timeout elapses.
+     *
+     * @param timeout   the longest time to wait
+     * @param unit      the unit of the timeout
+     * @return true if the toilet has been entered, false if the time ran out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean tryEnter(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Waits for the toilet to become vacant, unless interrupted.
+     *
+     * @return true once the toilet has been entered
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean enterInterruptibly() throws InterruptedException;
+
     void quit();
 
     boolean isOccupied();
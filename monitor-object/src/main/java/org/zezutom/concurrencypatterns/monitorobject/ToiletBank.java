@@ -0,0 +1,241 @@
+package org.zezutom.concurrencypatterns.monitorobject;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author Tomas Zezula
+ *
+ * A toilet per key, without a monitor per key. The keys are mapped onto a fixed number of stripes,
+ * each of them being a monitor of its own:
+ *
+ * - the memory doesn't grow with the number of keys, only the keys in use are remembered
+ * - visitors of different keys rarely meet on the same stripe, hence the contention is spread
+ * - the fields of each stripe are padded, so that the bookkeeping of two stripes doesn't share a cache line
+ * - each stripe remembers its keys in an open-addressed table, entering and leaving doesn't allocate anything
+ *
+ * Keys of the same stripe share its condition. A leaving visitor therefore wakes up all of the visitors
+ * waiting on the stripe, but only if there are any.
+ */
+public class ToiletBank {
+
+    public static final int DEFAULT_STRIPES = 64;
+
+    private final Stripe[] stripes;
+
+    private final int mask;
+
+    public ToiletBank() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public ToiletBank(int stripes) {
+        this(stripes, true);
+    }
+
+    /**
+     * @param stripes   the number of monitors, rounded up to a power of two
+     * @param fair      whether the visitors of a stripe enter in the order of their arrival
+     */
+    public ToiletBank(int stripes, boolean fair) {
+        if (stripes < 1 || stripes > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid number of stripes: " + stripes);
+        }
+        int size = (stripes == 1) ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe(fair);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Waits until the toilet of the key is vacant, then occupies it.
+     *
+     * @param key identifies the toilet
+     * @return true once the toilet has been entered
+     */
+    public boolean enter(Object key) {
+        int hash = hash(key);
+        Stripe stripe = stripes[hash & mask];
+        stripe.lock.lock();
+        try {
+            while (stripe.contains(key, hash)) {    // wait while the toilet is being used
+                stripe.waiting++;
+                try {
+                    stripe.vacancy.awaitUninterruptibly();
+                } finally {
+                    stripe.waiting--;
+                }
+            }
+            stripe.add(key, hash);
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Leaves the toilet of the key.
+     *
+     * @param key identifies the toilet
+     * @throws IllegalMonitorStateException if the toilet is vacant
+     */
+    public void quit(Object key) {
+        int hash = hash(key);
+        Stripe stripe = stripes[hash & mask];
+        stripe.lock.lock();
+        try {
+            if (!stripe.remove(key, hash)) {
+                throw new IllegalMonitorStateException("The toilet is vacant: " + key);
+            }
+            if (stripe.waiting > 0) {
+                stripe.vacancy.signalAll();     // some of them might be waiting for other keys
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public boolean isOccupied(Object key) {
+        int hash = hash(key);
+        Stripe stripe = stripes[hash & mask];
+        stripe.lock.lock();
+        try {
+            return stripe.contains(key, hash);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public int getStripes() {
+        return stripes.length;
+    }
+
+    private static int hash(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("The key is required!");
+        }
+        // Spreads the higher bits of the hash, as the lower ones alone pick the stripe
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h;
+    }
+
+    // Padding ahead of the fields of a stripe. The JVM is free to reorder the fields of a single class,
+    // but it lays out the fields of a superclass first, hence the padding is spread over a class hierarchy.
+    @SuppressWarnings("unused")
+    private static class StripePadding {
+
+        private long p0, p1, p2, p3, p4, p5, p6;
+    }
+
+    // The bookkeeping of a stripe, only accessed under its lock
+    private static class StripeFields extends StripePadding {
+
+        // The smallest table of the keys in use, it only ever grows
+        private static final int INITIAL_SLOTS = 4;
+
+        // Monitor Lock, it keeps its state in objects of its own, which are not padded
+        final ReentrantLock lock;
+
+        // Monitor Condition - a toilet of this stripe has been left
+        final Condition vacancy;
+
+        // The keys in use, an open-addressed table with linear probing, and the hashes of the keys
+        private Object[] keys = new Object[INITIAL_SLOTS];
+
+        private int[] hashes = new int[INITIAL_SLOTS];
+
+        private int size;
+
+        int waiting;
+
+        private StripeFields(boolean fair) {
+            lock = new ReentrantLock(fair);
+            vacancy = lock.newCondition();
+        }
+
+        boolean contains(Object key, int hash) {
+            return indexOf(key, hash) >= 0;
+        }
+
+        // Only called with the key not being in the table
+        void add(Object key, int hash) {
+            if ((size + 1) << 1 > keys.length) {
+                grow();
+            }
+            int i = slot(hash, keys.length);
+            while (keys[i] != null) {
+                i = (i + 1) & (keys.length - 1);
+            }
+            keys[i] = key;
+            hashes[i] = hash;
+            size++;
+        }
+
+        boolean remove(Object key, int hash) {
+            int i = indexOf(key, hash);
+            if (i < 0) {
+                return false;
+            }
+            keys[i] = null;
+            size--;
+
+            // Shifts the following keys back, so that none of them gets cut off from its slot
+            int mask = keys.length - 1;
+            for (int j = (i + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+                int home = slot(hashes[j], keys.length);
+                // The key may move to the vacant slot, unless its home lies cyclically after the vacant slot
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    keys[i] = keys[j];
+                    hashes[i] = hashes[j];
+                    keys[j] = null;
+                    i = j;
+                }
+            }
+            return true;
+        }
+
+        private int indexOf(Object key, int hash) {
+            int mask = keys.length - 1;
+            for (int i = slot(hash, keys.length); keys[i] != null; i = (i + 1) & mask) {
+                if (hashes[i] == hash && keys[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void grow() {
+            Object[] oldKeys = keys;
+            int[] oldHashes = hashes;
+            keys = new Object[oldKeys.length << 1];
+            hashes = new int[oldKeys.length << 1];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    add(oldKeys[i], oldHashes[i]);
+                }
+            }
+        }
+
+        // The lower bits of the hash pick the stripe, hence the slot is picked by the higher ones
+        private static int slot(int hash, int length) {
+            return Integer.reverse(hash) & (length - 1);
+        }
+    }
+
+    // A stripe padded on both sides, its fields never share a cache line with those of its neighbours
+    @SuppressWarnings("unused")
+    private static final class Stripe extends StripeFields {
+
+        private long q0, q1, q2, q3, q4, q5, q6;
+
+        private Stripe(boolean fair) {
+            super(fair);
+        }
+    }
+}
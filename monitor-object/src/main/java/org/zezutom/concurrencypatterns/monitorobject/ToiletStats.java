@@ -0,0 +1,64 @@
+package org.zezutom.concurrencypatterns.monitorobject;
+
+/**
+ * @author Tomas Zezula
+ *
+ * A snapshot of the contention on a toilet, see CleanToilet.getStats(). It never changes once taken.
+ */
+public class ToiletStats {
+
+    // From the arrival until the toilet is entered, failed attempts excluded
+    private final Histogram waitTime;
+
+    // From entering the toilet until leaving it
+    private final Histogram holdTime;
+
+    private final int waiters;
+
+    private final int peakWaiters;
+
+    private final long signalCount;
+
+    public ToiletStats(Histogram waitTime, Histogram holdTime, int waiters, int peakWaiters, long signalCount) {
+        this.waitTime = new Histogram(waitTime);
+        this.holdTime = new Histogram(holdTime);
+        this.waiters = waiters;
+        this.peakWaiters = peakWaiters;
+        this.signalCount = signalCount;
+    }
+
+    public Histogram getWaitTime() {
+        return new Histogram(waitTime);
+    }
+
+    public Histogram getHoldTime() {
+        return new Histogram(holdTime);
+    }
+
+    // No copies, only meant for reading the attributes of a cached snapshot, see ToiletStatsAdapter
+    Histogram waitTime() {
+        return waitTime;
+    }
+
+    Histogram holdTime() {
+        return holdTime;
+    }
+
+    public int getWaiters() {
+        return waiters;
+    }
+
+    public int getPeakWaiters() {
+        return peakWaiters;
+    }
+
+    public long getSignalCount() {
+        return signalCount;
+    }
+
+    @Override
+    public String toString() {
+        return "wait [" + waitTime + "], hold [" + holdTime + "], waiters=" + waiters
+                + ", peak waiters=" + peakWaiters + ", signals=" + signalCount;
+    }
+}
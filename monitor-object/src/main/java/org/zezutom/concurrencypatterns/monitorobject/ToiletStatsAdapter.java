@@ -0,0 +1,107 @@
+package org.zezutom.concurrencypatterns.monitorobject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Exposes the contention on a CleanToilet to JMX, see CleanToilet.register(String).
+ *
+ * The attributes are served from a snapshot, which is taken at most once per STATS_REFRESH_MILLIS.
+ * A JMX console polling all of the attributes thus takes the toilet's lock once, rather than once per attribute.
+ * Whoever needs up-to-date figures in Java calls CleanToilet.getStats() instead.
+ */
+class ToiletStatsAdapter implements ToiletStatsMXBean {
+
+    // How long a snapshot is served before a fresh one is taken
+    public static final long STATS_REFRESH_MILLIS = 1000;
+
+    private final CleanToilet toilet;
+
+    // Null until first read or after a reset
+    private volatile ToiletStats cachedStats;
+
+    private volatile long cachedAt;
+
+    ToiletStatsAdapter(CleanToilet toilet) {
+        this.toilet = toilet;
+    }
+
+    @Override
+    public boolean isInstrumented() {
+        return toilet.isInstrumented();
+    }
+
+    @Override
+    public void setInstrumented(boolean instrumented) {
+        toilet.setInstrumented(instrumented);
+    }
+
+    @Override
+    public long getVisitCount() {
+        return cachedStats().waitTime().getCount();
+    }
+
+    @Override
+    public long getMeanWaitNanos() {
+        return cachedStats().waitTime().getMean();
+    }
+
+    @Override
+    public long getP99WaitNanos() {
+        return cachedStats().waitTime().getPercentile(99);
+    }
+
+    @Override
+    public long getMaxWaitNanos() {
+        return cachedStats().waitTime().getMax();
+    }
+
+    @Override
+    public long getMeanHoldNanos() {
+        return cachedStats().holdTime().getMean();
+    }
+
+    @Override
+    public long getP99HoldNanos() {
+        return cachedStats().holdTime().getPercentile(99);
+    }
+
+    @Override
+    public long getMaxHoldNanos() {
+        return cachedStats().holdTime().getMax();
+    }
+
+    @Override
+    public int getWaiters() {
+        return cachedStats().getWaiters();
+    }
+
+    @Override
+    public int getPeakWaiters() {
+        return cachedStats().getPeakWaiters();
+    }
+
+    @Override
+    public long getSignalCount() {
+        return cachedStats().getSignalCount();
+    }
+
+    @Override
+    public void resetStats() {
+        toilet.resetStats();
+        cachedStats = null;
+    }
+
+    // Takes a fresh snapshot only once the cached one is too old. Racing threads might both take one, that's harmless.
+    private ToiletStats cachedStats() {
+        ToiletStats stats = cachedStats;
+        long now = System.nanoTime();
+        if (stats == null || now - cachedAt > TimeUnit.MILLISECONDS.toNanos(STATS_REFRESH_MILLIS)) {
+            stats = toilet.getStats();
+            cachedAt = now;
+            cachedStats = stats;
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,35 @@
+package org.zezutom.concurrencypatterns.monitorobject;
+
+/**
+ * @author Tomas Zezula
+ *
+ * The contention on a toilet, as seen by a JMX console. The times are in nanoseconds.
+ */
+public interface ToiletStatsMXBean {
+
+    boolean isInstrumented();
+
+    void setInstrumented(boolean instrumented);
+
+    long getVisitCount();
+
+    long getMeanWaitNanos();
+
+    long getP99WaitNanos();
+
+    long getMaxWaitNanos();
+
+    long getMeanHoldNanos();
+
+    long getP99HoldNanos();
+
+    long getMaxHoldNanos();
+
+    int getWaiters();
+
+    int getPeakWaiters();
+
+    long getSignalCount();
+
+    void resetStats();
+}
@@ -0,0 +1,107 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.monitorobject.AsyncToilet;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves that org.zezutom.concurrencypatterns.monitorobject.AsyncToilet is only ever used by a single visitor
+ * at a time, whether the visitors block, give up waiting or leave it to a continuation.
+ */
+public class AsyncToiletMultiThreadedTest {
+
+    public static final int ITERATIONS = 500;
+
+    public static final int VISITORS = 100000;
+
+    private final ToiletVisits visits = new ToiletVisits();
+
+    @Test
+    public void continuationsInLeavingThread() throws InterruptedException {
+        runTest(new AsyncToilet());
+    }
+
+    @Test
+    public void continuationsInExecutor() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            runTest(new AsyncToilet(executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void crowdWaitsOnSmallExecutor() throws InterruptedException {
+        // Many more visitors than threads, none of them blocks a thread while in line
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final AsyncToilet toilet = new AsyncToilet(executor);
+            final CountDownLatch admitted = new CountDownLatch(VISITORS);
+            toilet.enter();
+            for (int i = 0; i < VISITORS; i++) {
+                toilet.enterAsync().whenAdmitted(new Runnable() {
+                    @Override
+                    public void run() {
+                        visits.use(toilet, 0);
+                        admitted.countDown();
+                    }
+                });
+            }
+            toilet.quit();
+            assertTrue("Some of the continuations have never run!", admitted.await(30, TimeUnit.SECONDS));
+            visits.assertNotFlooded();
+            assertFalse(toilet.isOccupied());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void runTest(final AsyncToilet toilet) throws InterruptedException {
+        final int threads = TestExecutor.DEFAULT_CONCURRENT_THREADS;
+        final CountDownLatch asyncVisits = new CountDownLatch(ITERATIONS * threads);
+        TestExecutor.get(ITERATIONS, threads).runTest(new Runnable() {
+            @Override
+            public void run() {
+                // Blocking
+                toilet.enter();
+                visits.use(toilet, 1000);
+
+                // Giving up after a while
+                try {
+                    if (toilet.tryEnter(100, TimeUnit.MICROSECONDS)) {
+                        visits.use(toilet, 1000);
+                    }
+                } catch (InterruptedException e) {
+                    // Don't bother
+                }
+
+                // Not waiting at all
+                toilet.enterAsync().whenAdmitted(new Runnable() {
+                    @Override
+                    public void run() {
+                        visits.use(toilet, 1000);
+                        asyncVisits.countDown();
+                    }
+                });
+            }
+        });
+        assertTrue("Some of the continuations have never run!", asyncVisits.await(10, TimeUnit.SECONDS));
+        visits.assertNotFlooded();
+        assertFalse(toilet.isOccupied());
+
+        // Whoever gave up must not have left the toilet blocked
+        toilet.enter();
+        toilet.quit();
+    }
+}
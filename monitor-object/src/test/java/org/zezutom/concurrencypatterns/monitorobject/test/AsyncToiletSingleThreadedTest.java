@@ -0,0 +1,137 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.monitorobject.AsyncToilet;
+import org.zezutom.concurrencypatterns.monitorobject.Ticket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Tomas Zezula
+ */
+public class AsyncToiletSingleThreadedTest {
+
+    public static final int VISITORS = 100000;
+
+    private AsyncToilet toilet;
+
+    @Before
+    public void init() {
+        toilet = new AsyncToilet();
+    }
+
+    @Test
+    public void acquireVacantToilet() {
+        Ticket ticket = toilet.enterAsync();
+        assertTrue(ticket.isDone());
+        assertTrue(toilet.isOccupied());
+    }
+
+    @Test
+    public void waitInLine() {
+        toilet.enter();
+        Ticket ticket = toilet.enterAsync();
+        assertFalse(ticket.isDone());
+        assertEquals(1, toilet.getLineLength());
+    }
+
+    @Test
+    public void handOverToNextInLine() throws Exception {
+        toilet.enter();
+        Ticket ticket = toilet.enterAsync();
+        final boolean[] admitted = new boolean[1];
+        ticket.whenAdmitted(new Runnable() {
+            @Override
+            public void run() {
+                admitted[0] = true;
+            }
+        });
+        toilet.quit();
+        assertTrue(admitted[0]);
+        assertTrue(ticket.isDone());
+        assertEquals(toilet, ticket.get(0, TimeUnit.MILLISECONDS));
+        assertTrue(toilet.isOccupied());    // never vacant in between
+    }
+
+    @Test(expected = CancellationException.class)
+    public void cancelWaitingTicket() throws Exception {
+        toilet.enter();
+        Ticket ticket = toilet.enterAsync();
+        assertTrue(ticket.cancel(false));
+        toilet.quit();
+        assertFalse(toilet.isOccupied());
+        ticket.get();
+    }
+
+    @Test
+    public void cannotCancelAdmittedTicket() {
+        assertFalse(toilet.enterAsync().cancel(false));
+        assertTrue(toilet.isOccupied());
+    }
+
+    @Test
+    public void tryOccupiedToilet() throws InterruptedException {
+        toilet.enter();
+        assertFalse(toilet.tryEnter());
+        assertFalse(toilet.tryEnter(10, TimeUnit.MILLISECONDS));
+        toilet.quit();
+        assertFalse(toilet.isOccupied());   // whoever gave up is not in line anymore
+    }
+
+    @Test
+    public void crowdWaitsOnSingleThread() {
+        // Each visitor quits in its continuation, which admits the next one. None of them owns a thread.
+        final List<Integer> order = new ArrayList<>();
+        toilet.enter();
+        for (int i = 0; i < VISITORS; i++) {
+            final int visitor = i;
+            toilet.enterAsync().whenAdmitted(new Runnable() {
+                @Override
+                public void run() {
+                    order.add(visitor);
+                    toilet.quit();
+                }
+            });
+        }
+        toilet.quit();
+        assertEquals(VISITORS, order.size());
+        for (int i = 0; i < VISITORS; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+        assertFalse(toilet.isOccupied());
+    }
+
+    @Test
+    public void rejectedContinuationRunsInLeavingThread() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();    // rejects everything from now on
+        final AsyncToilet rejecting = new AsyncToilet(executor);
+        final Thread[] runner = new Thread[1];
+        rejecting.enter();
+        rejecting.enterAsync().whenAdmitted(new Runnable() {
+            @Override
+            public void run() {
+                runner[0] = Thread.currentThread();
+                rejecting.quit();
+            }
+        });
+        rejecting.quit();
+        assertEquals(Thread.currentThread(), runner[0]);
+        assertFalse("The toilet has been left occupied!", rejecting.isOccupied());
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void leaveVacantToilet() {
+        toilet.quit();
+    }
+}
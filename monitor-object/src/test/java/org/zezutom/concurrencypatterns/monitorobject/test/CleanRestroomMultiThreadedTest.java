@@ -0,0 +1,98 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.monitorobject.AdmissionMode;
+import org.zezutom.concurrencypatterns.monitorobject.CleanRestroom;
+import org.zezutom.concurrencypatterns.monitorobject.Restroom;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves that org.zezutom.concurrencypatterns.monitorobject.CleanRestroom admits several visitors at once,
+ * but never more than there are stalls, regardless of the admission mode.
+ */
+public class CleanRestroomMultiThreadedTest {
+
+    public static final int CAPACITY = 3;
+
+    public static final long USAGE_MILLIS = 2;
+
+    private Restroom restroom;
+
+    private final ToiletVisits visits = new ToiletVisits(CAPACITY);
+
+    @Test
+    public void fairRestroom() {
+        runTest(AdmissionMode.FAIR);
+    }
+
+    @Test
+    public void bargingRestroom() {
+        runTest(AdmissionMode.BARGING);
+    }
+
+    @Test
+    public void impatientVisitorsMakeWayForOthers() throws InterruptedException {
+        // A family waits for the whole restroom at the head of the line, but gives up soon
+        restroom = new CleanRestroom(CAPACITY, AdmissionMode.FAIR, true);
+        restroom.enter();
+        final AtomicInteger admitted = new AtomicInteger();
+        Thread family = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (restroom.tryEnter(CAPACITY, 50, TimeUnit.MILLISECONDS)) {
+                        admitted.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    // Don't bother
+                }
+            }
+        });
+        family.start();
+        Thread.sleep(10);
+
+        // Waits in line behind the family, then it's its turn
+        Thread single = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                if (restroom.tryEnter()) {
+                    return; // overtook the family, that's a failure
+                }
+                restroom.enter();
+                admitted.addAndGet(10);
+                restroom.quit();
+            }
+        });
+        single.start();
+        family.join();
+        single.join();
+
+        assertEquals(10, admitted.get());
+        restroom.quit();
+        assertEquals(0, restroom.getOccupancy());
+    }
+
+    private void runTest(AdmissionMode mode) {
+        restroom = new CleanRestroom(CAPACITY, mode, true);
+        // Single visitors along with families taking two stalls at once
+        Runnable visitor = new Runnable() {
+            @Override
+            public void run() {
+                visits.visit(restroom, (int) (Thread.currentThread().getId() % 2) + 1, USAGE_MILLIS);
+            }
+        };
+        TestExecutor.get(50, 10).runTest(visitor);
+
+        visits.assertNotFlooded();
+        assertTrue("No visitors have met inside!", visits.getMaxInside() > 2);
+        assertEquals(0, restroom.getOccupancy());
+    }
+}
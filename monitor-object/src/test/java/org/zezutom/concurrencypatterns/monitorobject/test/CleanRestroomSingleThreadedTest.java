@@ -0,0 +1,79 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.monitorobject.AdmissionMode;
+import org.zezutom.concurrencypatterns.monitorobject.CleanRestroom;
+import org.zezutom.concurrencypatterns.monitorobject.Restroom;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Tomas Zezula
+ */
+public class CleanRestroomSingleThreadedTest {
+
+    public static final int CAPACITY = 3;
+
+    private Restroom restroom;
+
+    @Before
+    public void init() {
+        restroom = new CleanRestroom(CAPACITY, AdmissionMode.FAIR, true);
+    }
+
+    @Test
+    public void enterVacantRestroom() {
+        assertTrue(restroom.enter());
+        assertFalse(restroom.isOccupied());
+        assertEquals(1, restroom.getOccupancy());
+    }
+
+    @Test
+    public void takeAllStalls() {
+        restroom.enter();
+        restroom.enter(CAPACITY - 1);
+        assertTrue(restroom.isOccupied());
+        assertEquals(CAPACITY, restroom.getOccupancy());
+    }
+
+    @Test
+    public void leaveRestroom() {
+        restroom.enter(CAPACITY);
+        restroom.quit(2);
+        restroom.quit();
+        assertFalse(restroom.isOccupied());
+        assertEquals(0, restroom.getOccupancy());
+    }
+
+    @Test
+    public void tryFullRestroom() throws InterruptedException {
+        assertTrue(restroom.tryEnter(CAPACITY - 1));
+        assertFalse(restroom.tryEnter(2));
+        assertFalse(restroom.tryEnter(2, 10, TimeUnit.MILLISECONDS));
+        assertTrue(restroom.tryEnter(10, TimeUnit.MILLISECONDS));
+        assertEquals(CAPACITY, restroom.getOccupancy());
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void interruptedWhileWaiting() throws InterruptedException {
+        restroom.enter(CAPACITY);
+        Thread.currentThread().interrupt();
+        restroom.enterInterruptibly();
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void leaveStallsNotHeld() {
+        restroom.enter();
+        restroom.quit(2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void moreStallsThanCapacity() {
+        restroom.enter(CAPACITY + 1);
+    }
+}
@@ -0,0 +1,36 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.monitorobject.CleanToilet;
+import org.zezutom.concurrencypatterns.monitorobject.Fairness;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves that org.zezutom.concurrencypatterns.monitorobject.CleanToilet is only ever used
+ * by a single visitor at a time, whatever the fairness.
+ */
+public class CleanToiletFairnessMultiThreadedTest {
+
+    public static final int ITERATIONS = 2000;
+
+    private final ToiletVisits visits = new ToiletVisits();
+
+    @Test
+    public void fair() {
+        visits.runTest(new CleanToilet(Fairness.FAIR), ITERATIONS, 1000);
+    }
+
+    @Test
+    public void unfair() {
+        visits.runTest(new CleanToilet(Fairness.UNFAIR), ITERATIONS, 1000);
+    }
+
+    @Test
+    public void boundedUnfair() {
+        // A threshold short enough for the visitors to keep starving
+        visits.runTest(new CleanToilet(Fairness.BOUNDED_UNFAIR, 10, TimeUnit.MICROSECONDS), ITERATIONS, 1000);
+    }
+}
@@ -6,6 +6,8 @@ import org.zezutom.concurrencypatterns.monitorobject.CleanToilet;
 import org.zezutom.concurrencypatterns.monitorobject.Toilet;
 import org.zezutom.concurrencypatterns.monitorobject.ToiletFloodedException;
 
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -35,4 +37,25 @@ public class CleanToiletSingleThreadedTest {
         toilet.quit();
         assertFalse(toilet.isOccupied());
     }
+
+    @Test
+    public void tryVacantToilet() {
+        assertTrue(toilet.tryEnter());
+        assertTrue(toilet.isOccupied());
+    }
+
+    @Test
+    public void tryOccupiedToilet() throws InterruptedException {
+        toilet.enter();
+        assertFalse(toilet.tryEnter());
+        assertFalse(toilet.tryEnter(10, TimeUnit.MILLISECONDS));
+        assertTrue(toilet.isOccupied());
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void interruptedWhileWaiting() throws InterruptedException {
+        toilet.enter();
+        Thread.currentThread().interrupt();
+        toilet.enterInterruptibly();
+    }
 }
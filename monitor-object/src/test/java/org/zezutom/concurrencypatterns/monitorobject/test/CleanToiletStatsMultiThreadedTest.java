@@ -0,0 +1,40 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.monitorobject.CleanToilet;
+import org.zezutom.concurrencypatterns.monitorobject.ToiletStats;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Tomas Zezula
+ *
+ * The instrumentation of org.zezutom.concurrencypatterns.monitorobject.CleanToilet adds up under contention.
+ */
+public class CleanToiletStatsMultiThreadedTest {
+
+    public static final int ITERATIONS = 500;
+
+    @Test
+    public void contention() {
+        final CleanToilet toilet = new CleanToilet();
+        TestExecutor.get(ITERATIONS, TestExecutor.DEFAULT_CONCURRENT_THREADS).runTest(new Runnable() {
+            @Override
+            public void run() {
+                toilet.enter();
+                ToiletBenchmark.stay(10000);
+                toilet.quit();
+            }
+        });
+        final long visits = (long) ITERATIONS * TestExecutor.DEFAULT_CONCURRENT_THREADS;
+        ToiletStats stats = toilet.getStats();
+        assertEquals(visits, stats.getWaitTime().getCount());
+        assertEquals(visits, stats.getHoldTime().getCount());
+        assertTrue(stats.getHoldTime().getMean() >= 10000);
+        assertEquals(0, stats.getWaiters());
+        assertTrue("Nobody has ever waited!", stats.getPeakWaiters() > 0);
+        assertTrue(stats.getSignalCount() >= visits);
+    }
+}
@@ -0,0 +1,129 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.monitorobject.CleanToilet;
+import org.zezutom.concurrencypatterns.monitorobject.Histogram;
+import org.zezutom.concurrencypatterns.monitorobject.ToiletStats;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Tomas Zezula
+ */
+public class CleanToiletStatsSingleThreadedTest {
+
+    private CleanToilet toilet;
+
+    @Before
+    public void init() {
+        toilet = new CleanToilet();
+    }
+
+    @Test
+    public void recordVisits() throws InterruptedException {
+        toilet.enter();
+        ToiletBenchmark.stay(TimeUnit.MILLISECONDS.toNanos(2));
+        toilet.quit();
+        assertTrue(toilet.tryEnter());
+        toilet.quit();
+
+        ToiletStats stats = toilet.getStats();
+        assertEquals(2, stats.getWaitTime().getCount());
+        assertEquals(2, stats.getHoldTime().getCount());
+        assertTrue(stats.getHoldTime().getMax() >= TimeUnit.MILLISECONDS.toNanos(2));
+        assertEquals(0, stats.getWaiters());
+        assertEquals(0, stats.getPeakWaiters());
+    }
+
+    @Test
+    public void failedAttemptsAreNotVisits() throws InterruptedException {
+        toilet.enter();
+        toilet.tryEnter();
+        toilet.tryEnter(1, TimeUnit.MILLISECONDS);
+        toilet.quit();
+        assertEquals(1, toilet.getStats().getWaitTime().getCount());
+    }
+
+    @Test
+    public void disableTiming() {
+        toilet.setInstrumented(false);
+        toilet.enter();
+        toilet.quit();
+        assertEquals(0, toilet.getStats().getWaitTime().getCount());
+        assertEquals(0, toilet.getStats().getHoldTime().getCount());
+    }
+
+    @Test
+    public void resetStats() {
+        toilet.enter();
+        toilet.quit();
+        toilet.resetStats();
+        assertEquals(0, toilet.getStats().getWaitTime().getCount());
+        assertEquals(0, toilet.getStats().getSignalCount());
+    }
+
+    @Test
+    public void snapshotDoesNotChange() {
+        ToiletStats stats = toilet.getStats();
+        toilet.enter();
+        toilet.quit();
+        assertEquals(0, stats.getWaitTime().getCount());
+    }
+
+    @Test
+    public void exportMBean() throws Exception {
+        toilet.enter();
+        toilet.quit();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = toilet.register("test");
+        try {
+            assertEquals(1L, server.getAttribute(name, "VisitCount"));
+            assertEquals(Boolean.TRUE, server.getAttribute(name, "Instrumented"));
+            server.invoke(name, "resetStats", null, null);
+            assertEquals(0L, server.getAttribute(name, "VisitCount"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void attributesShareSnapshot() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = toilet.register("snapshot");
+        try {
+            toilet.enter();
+            toilet.quit();
+            assertEquals(1L, server.getAttribute(name, "VisitCount"));
+
+            // Served from the very same snapshot until it is refreshed, while the toilet itself is always up to date
+            toilet.enter();
+            toilet.quit();
+            assertEquals(1L, server.getAttribute(name, "VisitCount"));
+            assertEquals(2, toilet.getStats().getWaitTime().getCount());
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void histogramPercentiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50500, histogram.getMean());
+        assertEquals(100000, histogram.getMax());
+        // Bucket bounds are powers of two, the percentile is never off by more than a factor of two
+        long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= 50000 && p50 < 100000);
+        assertEquals(100000, histogram.getPercentile(100));
+    }
+}
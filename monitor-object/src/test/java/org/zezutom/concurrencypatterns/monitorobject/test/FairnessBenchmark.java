@@ -0,0 +1,132 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.zezutom.concurrencypatterns.monitorobject.CleanToilet;
+import org.zezutom.concurrencypatterns.monitorobject.Fairness;
+import org.zezutom.concurrencypatterns.monitorobject.Toilet;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Measures the price of fairness. The traffic follows CleanToiletMultiThreadedTest.testBusyBeyondBelief,
+ * one-time patrons, peaceful minds and frequent fliers all at once, only the time is scaled down from milliseconds
+ * to microseconds. Not a unit test, run it by hand:
+ *
+ *   java ... org.zezutom.concurrencypatterns.monitorobject.test.FairnessBenchmark [patrons of each kind]
+ *
+ * For each of the modes it reports the throughput (visits per second) along with the average and the longest wait.
+ */
+public class FairnessBenchmark {
+
+    public static final int DEFAULT_PATRONS = 8;
+
+    public static final int ITERATIONS = 50;
+
+    // The time unit of the traffic: 100 of them is a one-time patron's visit
+    public static final long TICK_NANOS = 1000;
+
+    public static final long MIN_WAIT_TICKS = 100;
+
+    public static final long MAX_WAIT_TICKS = 120;
+
+    private final Toilet toilet;
+
+    private final AtomicLong visits = new AtomicLong();
+
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private FairnessBenchmark(Toilet toilet) {
+        this.toilet = toilet;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int patrons = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PATRONS;
+
+        // Warm up
+        new FairnessBenchmark(new CleanToilet(Fairness.UNFAIR)).run(patrons);
+
+        System.out.printf("%16s %14s %14s %14s%n", "fairness", "visits/s", "avg wait (us)", "max wait (us)");
+        for (Fairness fairness : Fairness.values()) {
+            FairnessBenchmark benchmark = new FairnessBenchmark(new CleanToilet(fairness));
+            long elapsed = benchmark.run(patrons);
+            long count = benchmark.visits.get();
+            System.out.printf("%16s %14.0f %14.1f %14.1f%n", fairness,
+                    count / (elapsed / 1e9),
+                    benchmark.totalWaitNanos.get() / 1e3 / count,
+                    benchmark.maxWaitNanos.get() / 1e3);
+        }
+    }
+
+    // Runs all of the patrons, returns the elapsed time in nanoseconds
+    private long run(int patrons) throws InterruptedException {
+        Runnable[] kinds = {
+                patron(100, 1),             // one-time patron
+                patron(MAX_WAIT_TICKS, 1),  // peaceful mind
+                patron(105, 3)              // frequent flier
+        };
+        int threads = patrons * kinds.length;
+        final long[] start = new long[1];
+        final CyclicBarrier startSync = new CyclicBarrier(threads, new Runnable() {
+            @Override
+            public void run() {
+                start[0] = System.nanoTime();
+            }
+        });
+        final CountDownLatch stopSync = new CountDownLatch(threads);
+        for (final Runnable kind : kinds) {
+            for (int i = 0; i < patrons; i++) {
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            startSync.await();
+                        } catch (Exception e) {
+                            throw new RuntimeException("Benchmark start failed!");
+                        }
+                        for (int j = 0; j < ITERATIONS; j++) {
+                            kind.run();
+                        }
+                        stopSync.countDown();
+                    }
+                }).start();
+            }
+        }
+        stopSync.await();
+        return System.nanoTime() - start[0];
+    }
+
+    private Runnable patron(final long visitTicks, final int visitCount) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < visitCount; i++) {
+                    long arrival = System.nanoTime();
+                    toilet.enter();
+                    record(System.nanoTime() - arrival);
+                    ToiletBenchmark.stay(visitTicks * TICK_NANOS);
+                    toilet.quit();
+
+                    // Another round ahead?
+                    if (i < visitCount - 1) {
+                        long waitTicks = (long) (Math.random() * (MAX_WAIT_TICKS - MIN_WAIT_TICKS) + MIN_WAIT_TICKS);
+                        LockSupport.parkNanos(waitTicks * TICK_NANOS);
+                    }
+                }
+            }
+        };
+    }
+
+    private void record(long waitNanos) {
+        visits.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        long max;
+        while (waitNanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, waitNanos))
+            ;
+    }
+}
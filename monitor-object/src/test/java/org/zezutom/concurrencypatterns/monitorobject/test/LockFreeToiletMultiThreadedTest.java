@@ -0,0 +1,55 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.monitorobject.LockFreeToilet;
+import org.zezutom.concurrencypatterns.monitorobject.Toilet;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves that org.zezutom.concurrencypatterns.monitorobject.LockFreeToilet is only ever used
+ * by a single visitor at a time, whether the visitors spin, park or give up waiting.
+ */
+public class LockFreeToiletMultiThreadedTest {
+
+    private final ToiletVisits visits = new ToiletVisits();
+
+    @Test
+    public void spinningVisitors() {
+        visits.runTest(new LockFreeToilet(), TestExecutor.MAX_ITERATIONS, 0);
+    }
+
+    @Test
+    public void parkedVisitors() {
+        // No spinning and a visit long enough for the others to park
+        visits.runTest(new LockFreeToilet(0), 20, TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Test
+    public void impatientVisitors() {
+        final Toilet toilet = new LockFreeToilet(0);
+        TestExecutor.get(100, 10).runTest(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (toilet.tryEnter(100, TimeUnit.MICROSECONDS)) {
+                        visits.use(toilet, 0);
+                    }
+                } catch (InterruptedException e) {
+                    // Don't bother
+                }
+            }
+        });
+        visits.assertNotFlooded();
+        assertFalse(toilet.isOccupied());
+
+        // Whoever gave up must not have left the toilet blocked
+        toilet.enter();
+        toilet.quit();
+    }
+}
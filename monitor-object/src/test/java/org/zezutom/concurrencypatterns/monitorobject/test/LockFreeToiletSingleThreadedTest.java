@@ -0,0 +1,57 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.monitorobject.LockFreeToilet;
+import org.zezutom.concurrencypatterns.monitorobject.Toilet;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Tomas Zezula
+ */
+public class LockFreeToiletSingleThreadedTest {
+
+    private Toilet toilet;
+
+    @Before
+    public void init() {
+        toilet = new LockFreeToilet();
+    }
+
+    @Test
+    public void acquireVacantToilet() {
+        assertTrue(toilet.enter());
+        assertTrue(toilet.isOccupied());
+    }
+
+    @Test
+    public void leaveOccupiedToilet() {
+        toilet.enter();
+        toilet.quit();
+        assertFalse(toilet.isOccupied());
+    }
+
+    @Test
+    public void tryOccupiedToilet() throws InterruptedException {
+        toilet.enter();
+        assertFalse(toilet.tryEnter());
+        assertFalse(toilet.tryEnter(10, TimeUnit.MILLISECONDS));
+        assertTrue(toilet.isOccupied());
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void interruptedWhileWaiting() throws InterruptedException {
+        toilet.enter();
+        Thread.currentThread().interrupt();
+        toilet.enterInterruptibly();
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void leaveVacantToilet() {
+        toilet.quit();
+    }
+}
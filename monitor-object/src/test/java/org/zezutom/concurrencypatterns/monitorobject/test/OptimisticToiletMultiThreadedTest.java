@@ -0,0 +1,94 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.monitorobject.OptimisticToilet;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves that org.zezutom.concurrencypatterns.monitorobject.OptimisticToilet is only ever used
+ * by a single visitor at a time, while the pollers keep looking and never see a half-made change.
+ */
+public class OptimisticToiletMultiThreadedTest {
+
+    public static final int ITERATIONS = 2000;
+
+    public static final int POLLERS = 2;
+
+    private final ToiletVisits visits = new ToiletVisits();
+
+    // The occupancy and the time of entering didn't match
+    private final AtomicInteger tornReads = new AtomicInteger();
+
+    @Test
+    public void fair() throws InterruptedException {
+        runTest(new OptimisticToilet(true));
+    }
+
+    @Test
+    public void unfair() throws InterruptedException {
+        runTest(new OptimisticToilet(false));
+    }
+
+    private void runTest(final OptimisticToilet toilet) throws InterruptedException {
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicInteger occupiedReads = new AtomicInteger();
+        Thread[] pollers = new Thread[POLLERS];
+        for (int i = 0; i < POLLERS; i++) {
+            pollers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (!done.get()) {
+                        Thread occupant = toilet.getOccupant();
+                        long occupied = toilet.getOccupiedNanos();
+                        if (occupant != null) {
+                            occupiedReads.incrementAndGet();
+                        }
+                        // A visit is a matter of microseconds, anything else is a half-made change
+                        if (occupied < 0 || occupied > TimeUnit.SECONDS.toNanos(1)) {
+                            tornReads.incrementAndGet();
+                        }
+                        toilet.isOccupied();
+                    }
+                }
+            });
+            pollers[i].start();
+        }
+
+        TestExecutor.get(ITERATIONS, TestExecutor.DEFAULT_CONCURRENT_THREADS).runTest(new Runnable() {
+            @Override
+            public void run() {
+                toilet.enter();
+                if (toilet.getOccupant() != Thread.currentThread()) {
+                    visits.flooded();
+                }
+                visits.use(toilet, 1000);
+            }
+        });
+        // On a single core the pollers may never get scheduled during a visit, so one last visitor waits for them
+        toilet.enter();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (occupiedReads.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        toilet.quit();
+        done.set(true);
+        for (Thread poller : pollers) {
+            poller.join();
+        }
+
+        visits.assertNotFlooded();
+        assertEquals(0, tornReads.get());
+        assertTrue("The pollers have never seen anyone inside!", occupiedReads.get() > 0);
+        assertFalse(toilet.isOccupied());
+    }
+}
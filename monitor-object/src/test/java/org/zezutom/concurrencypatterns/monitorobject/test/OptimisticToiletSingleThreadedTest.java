@@ -0,0 +1,68 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.monitorobject.OptimisticToilet;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Tomas Zezula
+ */
+public class OptimisticToiletSingleThreadedTest {
+
+    private OptimisticToilet toilet;
+
+    @Before
+    public void init() {
+        toilet = new OptimisticToilet();
+    }
+
+    @Test
+    public void acquireVacantToilet() {
+        assertTrue(toilet.enter());
+        assertTrue(toilet.isOccupied());
+        assertEquals(Thread.currentThread(), toilet.getOccupant());
+    }
+
+    @Test
+    public void leaveOccupiedToilet() {
+        toilet.enter();
+        toilet.quit();
+        assertFalse(toilet.isOccupied());
+        assertNull(toilet.getOccupant());
+        assertEquals(0, toilet.getOccupiedNanos());
+    }
+
+    @Test
+    public void tryOccupiedToilet() throws InterruptedException {
+        toilet.enter();
+        assertFalse(toilet.tryEnter());
+        assertFalse(toilet.tryEnter(10, TimeUnit.MILLISECONDS));
+        assertTrue(toilet.isOccupied());
+    }
+
+    @Test
+    public void measureTheVisit() {
+        toilet.enter();
+        ToiletBenchmark.stay(TimeUnit.MILLISECONDS.toNanos(1));
+        assertTrue(toilet.getOccupiedNanos() >= TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void interruptedWhileWaiting() throws InterruptedException {
+        toilet.enter();
+        Thread.currentThread().interrupt();
+        toilet.enterInterruptibly();
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void leaveVacantToilet() {
+        toilet.quit();
+    }
+}
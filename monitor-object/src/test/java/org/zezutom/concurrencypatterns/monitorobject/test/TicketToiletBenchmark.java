@@ -0,0 +1,62 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.zezutom.concurrencypatterns.monitorobject.CleanToilet;
+import org.zezutom.concurrencypatterns.monitorobject.TicketToilet;
+import org.zezutom.concurrencypatterns.monitorobject.Toilet;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Compares the throughput of the FIFO toilets, the fair CleanToilet against the TicketToilet,
+ * from 2 to 64 concurrent visitors staying from 0 to 100 microseconds. Not a unit test, run it by hand:
+ *
+ *   java ... org.zezutom.concurrencypatterns.monitorobject.test.TicketToiletBenchmark [visits per measurement]
+ *
+ * The longer the stay, the fewer the visits, so that each of the measurements takes about the same time.
+ * The results are visits per millisecond, the higher the better.
+ */
+public class TicketToiletBenchmark {
+
+    public static final int[] THREADS = {2, 4, 8, 16, 32, 64};
+
+    public static final long[] HOLD_MICROS = {0, 1, 10, 100};
+
+    // The visits of all of the visitors together, for the shortest of the stays
+    public static final int DEFAULT_VISITS = 40000;
+
+    // The longest time spent inside per measurement, the visits are cut down to fit
+    public static final long MAX_HOLD_NANOS_TOTAL = 200000000L;
+
+    public static void main(String[] args) throws Exception {
+        int visits = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_VISITS;
+
+        ToiletBenchmark.ToiletFactory clean = new ToiletBenchmark.ToiletFactory() {
+            @Override
+            public Toilet create() {
+                return new CleanToilet();
+            }
+        };
+        ToiletBenchmark.ToiletFactory ticket = new ToiletBenchmark.ToiletFactory() {
+            @Override
+            public Toilet create() {
+                return new TicketToilet();
+            }
+        };
+
+        // Warm up, so that the JIT compiler is done before measuring
+        ToiletBenchmark.measure(clean.create(), 4, visits / 4, 0);
+        ToiletBenchmark.measure(ticket.create(), 4, visits / 4, 0);
+
+        System.out.printf("%8s %10s %16s %16s%n", "threads", "hold [us]", "CleanToilet", "TicketToilet");
+        for (long holdMicros : HOLD_MICROS) {
+            long holdNanos = holdMicros * 1000;
+            long total = (holdNanos == 0) ? visits : Math.min(visits, MAX_HOLD_NANOS_TOTAL / holdNanos);
+            for (int threads : THREADS) {
+                int perThread = (int) Math.max(1, total / threads);
+                System.out.printf("%8d %10d %16.1f %16.1f%n", threads, holdMicros,
+                        ToiletBenchmark.measure(clean.create(), threads, perThread, holdNanos),
+                        ToiletBenchmark.measure(ticket.create(), threads, perThread, holdNanos));
+            }
+        }
+    }
+}
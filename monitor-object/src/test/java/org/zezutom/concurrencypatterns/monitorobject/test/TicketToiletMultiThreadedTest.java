@@ -0,0 +1,92 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.monitorobject.TicketToilet;
+import org.zezutom.concurrencypatterns.monitorobject.Toilet;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Proves that org.zezutom.concurrencypatterns.monitorobject.TicketToilet is only ever used
+ * by a single visitor at a time, and the visitors take turns in the order of their arrival.
+ */
+public class TicketToiletMultiThreadedTest {
+
+    public static final int ITERATIONS = 2000;
+
+    public static final int VISITORS = 10;
+
+    private final ToiletVisits visits = new ToiletVisits();
+
+    @Test
+    public void spinningVisitors() {
+        // Few rounds only, a visitor who never parks waits for each of those ahead of them to get a time slice
+        visits.runTest(new TicketToilet(TicketToilet.DEFAULT_BACKOFF_NANOS, TicketToilet.NEVER_PARK), 50, 1000);
+    }
+
+    @Test
+    public void parkedVisitors() {
+        visits.runTest(new TicketToilet(TicketToilet.DEFAULT_BACKOFF_NANOS, 1), ITERATIONS, 1000);
+    }
+
+    @Test
+    public void impatientVisitors() {
+        final Toilet toilet = new TicketToilet();
+        TestExecutor.get(200, 10).runTest(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (toilet.tryEnter(50, TimeUnit.MICROSECONDS)) {
+                        visits.use(toilet, 10000);
+                    }
+                } catch (InterruptedException e) {
+                    // Don't bother
+                }
+            }
+        });
+        visits.assertNotFlooded();
+        assertFalse(toilet.isOccupied());
+
+        // Whoever gave up must not have left the toilet blocked
+        toilet.enter();
+        toilet.quit();
+    }
+
+    @Test
+    public void firstComeFirstServed() throws InterruptedException {
+        final TicketToilet toilet = new TicketToilet();
+        final List<Integer> order = new CopyOnWriteArrayList<>();
+        toilet.enter();
+        Thread[] visitors = new Thread[VISITORS];
+        for (int i = 0; i < VISITORS; i++) {
+            final int visitor = i;
+            visitors[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    toilet.enter();
+                    order.add(visitor);
+                    toilet.quit();
+                }
+            });
+            visitors[i].start();
+            while (toilet.getLineLength() <= i) {
+                Thread.sleep(1);    // the next one only comes once this one is in line
+            }
+        }
+        toilet.quit();
+        for (Thread visitor : visitors) {
+            visitor.join();
+        }
+        for (int i = 0; i < VISITORS; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+}
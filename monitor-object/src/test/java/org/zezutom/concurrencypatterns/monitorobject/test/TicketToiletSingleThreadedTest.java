@@ -0,0 +1,72 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.monitorobject.TicketToilet;
+import org.zezutom.concurrencypatterns.monitorobject.Toilet;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Tomas Zezula
+ */
+public class TicketToiletSingleThreadedTest {
+
+    private Toilet toilet;
+
+    @Before
+    public void init() {
+        toilet = new TicketToilet();
+    }
+
+    @Test
+    public void acquireVacantToilet() {
+        assertTrue(toilet.enter());
+        assertTrue(toilet.isOccupied());
+    }
+
+    @Test
+    public void leaveOccupiedToilet() {
+        toilet.enter();
+        toilet.quit();
+        assertFalse(toilet.isOccupied());
+    }
+
+    @Test
+    public void tryVacantToilet() {
+        assertTrue(toilet.tryEnter());
+        assertTrue(toilet.isOccupied());
+    }
+
+    @Test
+    public void tryOccupiedToilet() throws InterruptedException {
+        toilet.enter();
+        assertFalse(toilet.tryEnter());
+        assertFalse(toilet.tryEnter(10, TimeUnit.MILLISECONDS));
+        assertTrue(toilet.isOccupied());
+    }
+
+    @Test
+    public void abandonedTicketIsSkipped() throws InterruptedException {
+        toilet.enter();
+        assertFalse(toilet.tryEnter(1, TimeUnit.MILLISECONDS));
+        toilet.quit();
+        assertFalse(toilet.isOccupied());
+        assertTrue(toilet.tryEnter());
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void interruptedWhileWaiting() throws InterruptedException {
+        toilet.enter();
+        Thread.currentThread().interrupt();
+        toilet.enterInterruptibly();
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void leaveVacantToilet() {
+        toilet.quit();
+    }
+}
@@ -0,0 +1,139 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.monitorobject.ToiletBank;
+import org.zezutom.concurrencypatterns.monitorobject.ToiletFloodedException;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Tomas Zezula
+ *
+ * The traffic of CleanToiletMultiThreadedTest, spread over a few keys which share even fewer stripes.
+ * A toilet is flooded if two visitors of the same key meet inside.
+ */
+public class ToiletBankMultiThreadedTest {
+
+    public static final long MIN_WAIT_MILLIS = 10;
+
+    public static final long MAX_WAIT_MILLIS = 12;
+
+    public static final int KEYS = 3;
+
+    public static final int STRIPES = 2;
+
+    private static volatile ToiletBank bank;
+
+    // The number of visitors inside, per key
+    private static volatile AtomicIntegerArray inside;
+
+    private static Runnable oneTimePatron;
+
+    private static Runnable peacefulMind;
+
+    private static Runnable frequentFlier;
+
+    private static volatile int toiletFloodedCount;
+
+    @BeforeClass
+    public static void setUp() {
+
+        oneTimePatron = new Runnable() {
+            @Override
+            public void run() {
+                setUsageTest(10, 1);
+            }
+        };
+
+        peacefulMind = new Runnable() {
+            @Override
+            public void run() {
+                setUsageTest(MAX_WAIT_MILLIS, 1);
+            }
+        };
+
+        frequentFlier = new Runnable() {
+            @Override
+            public void run() {
+                setUsageTest(11, 3);
+            }
+        };
+    }
+
+    private static void setUsageTest(long acquireMillis, int visitCount) {
+        for (int i = 0; i < visitCount; i++) {
+            final int key = (int) (Math.random() * KEYS);
+            try {
+                if (bank.enter(key)) {
+                    if (inside.incrementAndGet(key) != 1 || !bank.isOccupied(key)) {
+                        throw new ToiletFloodedException();
+                    }
+                    Thread.sleep(acquireMillis);
+                    inside.decrementAndGet(key);
+                    bank.quit(key);
+                }
+            } catch (InterruptedException e) {
+                // Don't bother
+            } catch (ToiletFloodedException e) {
+                synchronized (ToiletBankMultiThreadedTest.class) {
+                    toiletFloodedCount++;
+                }
+                inside.decrementAndGet(key);
+                bank.quit(key);
+            }
+
+            // Another round ahead?
+            if (i < visitCount - 1) {
+                final long waitPeriod = (long) (Math.random() * (MAX_WAIT_MILLIS - MIN_WAIT_MILLIS) + MIN_WAIT_MILLIS);
+                try {
+                    Thread.sleep(waitPeriod);
+                } catch (InterruptedException e) {
+                    // No worries
+                }
+            }
+        }
+    }
+
+    @Before
+    public void init() {
+        toiletFloodedCount = 0;
+        inside = new AtomicIntegerArray(KEYS);
+        bank = new ToiletBank(STRIPES);
+    }
+
+    @Test
+    public void testRegularTraffic() {
+        TestExecutor.get(10, 5).runTest(oneTimePatron);
+        assertIncidents();
+    }
+
+    @Test
+    public void testPeakHour() {
+        TestExecutor.get(10, 15).runTest(oneTimePatron, peacefulMind);
+        assertIncidents();
+    }
+
+    @Test
+    public void testBusyBeyondBelief() {
+        TestExecutor.get(10, 25).runTest(oneTimePatron, peacefulMind, frequentFlier);
+        assertIncidents();
+    }
+
+    @Test
+    public void testCrowd() {
+        TestExecutor.get(20, 25).runTest(frequentFlier);
+        assertIncidents();
+    }
+
+    private void assertIncidents() {
+        assertTrue("The toilet was flooded " + toiletFloodedCount + " times!", toiletFloodedCount == 0);
+        for (int key = 0; key < KEYS; key++) {
+            assertTrue("Left occupied: " + key, !bank.isOccupied(key));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zezutom.concurrencypatterns.monitorobject.ToiletBank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Tomas Zezula
+ */
+public class ToiletBankSingleThreadedTest {
+
+    private ToiletBank bank;
+
+    @Before
+    public void init() {
+        bank = new ToiletBank(4);
+    }
+
+    @Test
+    public void acquireVacantToilet() {
+        assertTrue(bank.enter("alice"));
+        assertTrue(bank.isOccupied("alice"));
+        assertFalse(bank.isOccupied("bob"));
+    }
+
+    @Test
+    public void leaveOccupiedToilet() {
+        bank.enter("alice");
+        bank.quit("alice");
+        assertFalse(bank.isOccupied("alice"));
+    }
+
+    @Test
+    public void keysOfTheSameStripeAreIndependent() {
+        // More keys than stripes, some of them have to share
+        for (int key = 0; key < 100; key++) {
+            assertTrue(bank.enter(key));
+        }
+        for (int key = 0; key < 100; key += 2) {
+            bank.quit(key);
+        }
+        for (int key = 0; key < 100; key++) {
+            assertEquals(key % 2 == 1, bank.isOccupied(key));
+        }
+    }
+
+    @Test
+    public void collidingKeysOfSingleStripe() {
+        // A single stripe and keys sharing their hashes, so that they keep colliding and moving around
+        ToiletBank single = new ToiletBank(1);
+        for (int key = 0; key < 64; key++) {
+            single.enter(new Key(key));
+        }
+        for (int key = 0; key < 64; key += 3) {
+            single.quit(new Key(key));
+        }
+        for (int key = 0; key < 64; key++) {
+            assertEquals(key % 3 != 0, single.isOccupied(new Key(key)));
+        }
+        for (int key = 0; key < 64; key += 3) {
+            single.enter(new Key(key));
+        }
+        for (int key = 0; key < 64; key++) {
+            single.quit(new Key(key));
+            assertFalse(single.isOccupied(new Key(key)));
+        }
+    }
+
+    @Test
+    public void stripesAreRoundedUp() {
+        assertEquals(8, new ToiletBank(5).getStripes());
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void leaveVacantToilet() {
+        bank.quit("alice");
+    }
+
+    // Only four distinct hashes
+    private static class Key {
+
+        private final int id;
+
+        private Key(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id % 4;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.zezutom.concurrencypatterns.monitorobject.CleanToilet;
+import org.zezutom.concurrencypatterns.monitorobject.LockFreeToilet;
+import org.zezutom.concurrencypatterns.monitorobject.Toilet;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Compares the throughput of the toilet implementations from 1 to 64 concurrent visitors.
+ * Not a unit test, run it by hand:
+ *
+ *   java ... org.zezutom.concurrencypatterns.monitorobject.test.ToiletBenchmark [visits per thread]
+ *
+ * Each visitor enters, stays for a moment (a busy wait, not a sleep) and quits, over and over again.
+ * The results are visits per millisecond, the higher the better.
+ *
+ * Contention needs parallelism: run it on a machine with at least as many cores as the visitors you care about.
+ * With fewer cores the threads mostly take turns on the processor, which says more about the scheduler than
+ * about the toilets.
+ */
+public class ToiletBenchmark {
+
+    public static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    public static final int DEFAULT_VISITS = 20000;
+
+    // How long a visitor stays inside
+    public static final long HOLD_NANOS = 100;
+
+    // Creates a fresh toilet for each of the measurements
+    public interface ToiletFactory {
+        Toilet create();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int visits = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_VISITS;
+
+        ToiletFactory clean = new ToiletFactory() {
+            @Override
+            public Toilet create() {
+                return new CleanToilet();
+            }
+        };
+        ToiletFactory lockFree = new ToiletFactory() {
+            @Override
+            public Toilet create() {
+                return new LockFreeToilet();
+            }
+        };
+
+        // Warm up, so that the JIT compiler is done before measuring
+        measure(clean.create(), 4, visits, HOLD_NANOS);
+        measure(lockFree.create(), 4, visits, HOLD_NANOS);
+
+        System.out.printf("%8s %16s %16s%n", "threads", "CleanToilet", "LockFreeToilet");
+        for (int threads : THREADS) {
+            System.out.printf("%8d %16.1f %16.1f%n", threads,
+                    measure(clean.create(), threads, visits, HOLD_NANOS),
+                    measure(lockFree.create(), threads, visits, HOLD_NANOS));
+        }
+    }
+
+    /**
+     * @param toilet    the toilet under test
+     * @param threads   the number of concurrent visitors
+     * @param visits    the number of visits per visitor
+     * @param holdNanos how long a visitor stays inside
+     * @return visits per millisecond
+     */
+    public static double measure(final Toilet toilet, int threads, final int visits, final long holdNanos)
+            throws InterruptedException {
+        // The clock starts once all of the visitors are ready, right before any of them is released
+        final long[] start = new long[1];
+        final CyclicBarrier startSync = new CyclicBarrier(threads, new Runnable() {
+            @Override
+            public void run() {
+                start[0] = System.nanoTime();
+            }
+        });
+        final CountDownLatch stopSync = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startSync.await();
+                    } catch (Exception e) {
+                        throw new RuntimeException("Benchmark start failed!");
+                    }
+                    for (int j = 0; j < visits; j++) {
+                        toilet.enter();
+                        stay(holdNanos);
+                        toilet.quit();
+                    }
+                    stopSync.countDown();
+                }
+            }).start();
+        }
+        stopSync.await();
+        long elapsed = System.nanoTime() - start[0];
+        return (double) threads * visits / (elapsed / 1000000.0);
+    }
+
+    static void stay(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        long until = System.nanoTime() + nanos;
+        while (System.nanoTime() < until)
+            ;   // busy
+    }
+}
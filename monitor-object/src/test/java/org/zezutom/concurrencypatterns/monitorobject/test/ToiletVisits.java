@@ -0,0 +1,120 @@
+package org.zezutom.concurrencypatterns.monitorobject.test;
+
+import org.zezutom.concurrencypatterns.monitorobject.Restroom;
+import org.zezutom.concurrencypatterns.monitorobject.Toilet;
+import org.zezutom.concurrencypatterns.monitorobject.ToiletFloodedException;
+import org.zezutom.concurrencypatterns.test.util.TestExecutor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * @author Tomas Zezula
+ *
+ * Keeps an eye on the visitors of a toilet (or a restroom) from the outside: whoever finds more visitors inside
+ * than there are stalls has flooded it. Shared by the multi-threaded tests, each of them only adds the checks
+ * specific to the implementation under test.
+ */
+public class ToiletVisits {
+
+    private final int capacity;
+
+    // The number of stalls being used right now
+    private final AtomicInteger inside = new AtomicInteger();
+
+    private final AtomicInteger maxInside = new AtomicInteger();
+
+    private final AtomicInteger floodedCount = new AtomicInteger();
+
+    public ToiletVisits() {
+        this(1);
+    }
+
+    /**
+     * @param capacity  the number of the visitors allowed inside at once
+     */
+    public ToiletVisits(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Lets the visitors in from the default number of threads, each of them staying for a while,
+     * then asserts that the toilet has never been flooded and has been left vacant
+     */
+    public void runTest(final Toilet toilet, int iterations, final long stayNanos) {
+        TestExecutor.get(iterations, TestExecutor.DEFAULT_CONCURRENT_THREADS).runTest(new Runnable() {
+            @Override
+            public void run() {
+                toilet.enter();
+                use(toilet, stayNanos);
+            }
+        });
+        assertNotFlooded();
+        assertFalse(toilet.isOccupied());
+    }
+
+    /**
+     * Uses a toilet which has just been entered, then leaves it
+     */
+    public void use(Toilet toilet, long stayNanos) {
+        occupy(1);
+        ToiletBenchmark.stay(stayNanos);
+        vacate(1);
+        toilet.quit();
+    }
+
+    /**
+     * Enters the restroom, uses the stalls for a while, then leaves them. The visitor sleeps inside,
+     * so that the others get a chance to come in.
+     */
+    public void visit(Restroom restroom, int stalls, long stayMillis) {
+        try {
+            restroom.enter(stalls);
+            occupy(stalls);
+            Thread.sleep(stayMillis);
+            vacate(stalls);
+            restroom.quit(stalls);
+        } catch (InterruptedException e) {
+            // Don't bother
+        } catch (ToiletFloodedException e) {
+            flooded();
+        }
+    }
+
+    /**
+     * To be called right after entering
+     */
+    public void occupy(int stalls) {
+        int now = inside.addAndGet(stalls);
+        if (now > capacity) {
+            flooded();
+        }
+        int max;
+        while (now > (max = maxInside.get()) && !maxInside.compareAndSet(max, now))
+            ;
+    }
+
+    /**
+     * To be called right before leaving
+     */
+    public void vacate(int stalls) {
+        inside.addAndGet(-stalls);
+    }
+
+    public void flooded() {
+        floodedCount.incrementAndGet();
+    }
+
+    public void assertNotFlooded() {
+        assertEquals("The toilet was flooded " + floodedCount.get() + " times!", 0, floodedCount.get());
+    }
+
+    /**
+     * @return the largest number of the stalls ever used at once
+     */
+    public int getMaxInside() {
+        return maxInside.get();
+    }
+}